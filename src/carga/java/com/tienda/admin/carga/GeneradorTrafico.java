@@ -0,0 +1,317 @@
+package com.tienda.admin.carga;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de tráfico en bucle abierto: las peticiones salen a intervalos fijos según el
+ * ritmo objetivo, respondan o no las anteriores. La latencia se mide desde el instante en
+ * que la petición debía salir, no desde que salió, para que un servidor lento no esconda
+ * su propia cola (omisión coordinada).
+ * <p>
+ * Con {@code carga.conexiones=N} funciona en bucle cerrado: N clientes concurrentes, cada
+ * uno con su conexión, envían la siguiente petición en cuanto reciben la respuesta. Sirve
+ * para medir el servidor con miles de conexiones abiertas (hilos de plataforma frente a
+ * virtuales); la latencia se mide entonces desde el envío.
+ */
+final class GeneradorTrafico {
+    
+    private static final String[] TERMINOS_BUSQUEDA = {"camiseta", "algodón azul", "zapatilla cuero",
+            "chaqueta", "bolso negro", "lana", "sudadera gris", "lámpara", "cojín lino", "auriculares"};
+    private static final String[] CATEGORIAS = {"Ropa", "Calzado", "Accesorios", "Hogar", "Electrónica"};
+    private static final int IMAGENES_DISTINTAS = 8;
+    private static final String SEPARADOR = "----cargaSeparador7d2f";
+    
+    private final String baseUrl;
+    private final PruebaCarga.Configuracion config;
+    private final List<Long> idsSembrados;
+    private final ConcurrentLinkedDeque<Long> idsCreados = new ConcurrentLinkedDeque<>();
+    private final List<byte[]> cuerposSubida = new ArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService hilosCliente;
+    private final HttpClient cliente;
+    // La API exige token: se inicia sesión una vez y se reutiliza en todas las peticiones
+    private final String token;
+    private final ResultadosCarga resultados = new ResultadosCarga();
+    
+    private final Operacion[] ruleta;
+    private final SplittableRandom random;
+    
+    GeneradorTrafico(String baseUrl, PruebaCarga.Configuracion config, List<Long> idsSembrados) throws IOException {
+        this.baseUrl = baseUrl;
+        this.config = config;
+        this.idsSembrados = idsSembrados;
+        this.random = new SplittableRandom(config.semilla());
+        this.hilosCliente = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.cliente = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(hilosCliente)
+                .build();
+        this.token = iniciarSesion();
+        
+        List<Operacion> casillas = new ArrayList<>();
+        config.mezcla().forEach((operacion, peso) -> {
+            for (int i = 0; i < peso; i++) casillas.add(operacion);
+        });
+        if (casillas.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla de operaciones no tiene ningún peso");
+        }
+        this.ruleta = casillas.toArray(Operacion[]::new);
+        
+        for (int i = 0; i < IMAGENES_DISTINTAS; i++) {
+            cuerposSubida.add(cuerpoMultipart(jpegDePrueba(i), "foto-" + i + ".jpg"));
+        }
+    }
+    
+    ResultadosCarga ejecutar() throws InterruptedException {
+        try {
+            return config.conexiones() > 0 ? ejecutarBucleCerrado() : ejecutarBucleAbierto();
+        } finally {
+            // Sus hilos no son daemon: sin esto la JVM no termina al acabar la prueba
+            hilosCliente.shutdown();
+        }
+    }
+    
+    private ResultadosCarga ejecutarBucleAbierto() throws InterruptedException {
+        long intervalo = 1_000_000_000L / config.rps();
+        long inicio = System.nanoTime();
+        long inicioMedida = inicio + config.calentamiento().toNanos();
+        long fin = inicioMedida + config.duracion().toNanos();
+        Semaphore enVuelo = new Semaphore(config.maxEnVuelo());
+        
+        for (long i = 0; ; i++) {
+            long programado = inicio + i * intervalo;
+            if (programado >= fin) break;
+            esperarHasta(programado);
+            
+            Operacion operacion = elegirOperacion();
+            boolean medir = programado >= inicioMedida;
+            
+            // Con demasiadas peticiones pendientes se descarta en lugar de acumular memoria
+            if (!enVuelo.tryAcquire()) {
+                if (medir) resultados.descartada(operacion);
+                continue;
+            }
+            
+            Long idEliminado = operacion == Operacion.ELIMINAR ? idsCreados.pollFirst() : null;
+            HttpRequest peticion = construir(operacion, idEliminado);
+            cliente.sendAsync(peticion, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((respuesta, error) -> {
+                        enVuelo.release();
+                        registrar(operacion, programado, medir, respuesta, error);
+                    });
+        }
+        
+        // Se espera a las que siguen en vuelo para no cortar la medida
+        if (!enVuelo.tryAcquire(config.maxEnVuelo(), 60, TimeUnit.SECONDS)) {
+            System.err.println("⚠️ Peticiones sin responder tras 60 s; se cierran los resultados igualmente");
+        }
+        resultados.cerrar(config.duracion());
+        return resultados;
+    }
+    
+    private ResultadosCarga ejecutarBucleCerrado() throws InterruptedException {
+        long inicio = System.nanoTime();
+        long inicioMedida = inicio + config.calentamiento().toNanos();
+        long fin = inicioMedida + config.duracion().toNanos();
+        CountDownLatch clientesTerminados = new CountDownLatch(config.conexiones());
+        
+        for (int i = 0; i < config.conexiones(); i++) {
+            enviarSiguiente(inicioMedida, fin, clientesTerminados);
+        }
+        
+        long margen = TimeUnit.SECONDS.toNanos(60);
+        if (!clientesTerminados.await(fin - System.nanoTime() + margen, TimeUnit.NANOSECONDS)) {
+            System.err.println("⚠️ Clientes sin terminar tras 60 s; se cierran los resultados igualmente");
+        }
+        resultados.cerrar(config.duracion());
+        return resultados;
+    }
+    
+    // Cada cliente encadena su siguiente petición al completar la anterior, sin hilo propio
+    private void enviarSiguiente(long inicioMedida, long fin, CountDownLatch clientesTerminados) {
+        long envio = System.nanoTime();
+        if (envio >= fin) {
+            clientesTerminados.countDown();
+            return;
+        }
+        
+        Operacion operacion;
+        HttpRequest peticion;
+        // La ruleta y el generador aleatorio no son thread-safe
+        synchronized (this) {
+            operacion = elegirOperacion();
+            peticion = construir(operacion, operacion == Operacion.ELIMINAR ? idsCreados.pollFirst() : null);
+        }
+        cliente.sendAsync(peticion, HttpResponse.BodyHandlers.ofByteArray())
+                .whenCompleteAsync((respuesta, error) -> {
+                    registrar(operacion, envio, envio >= inicioMedida, respuesta, error);
+                    enviarSiguiente(inicioMedida, fin, clientesTerminados);
+                }, hilosCliente);
+    }
+    
+    private void registrar(Operacion operacion, long desde, boolean medir,
+                           HttpResponse<byte[]> respuesta, Throwable error) {
+        long latencia = System.nanoTime() - desde;
+        int estado = error != null ? -1 : respuesta.statusCode();
+        if (medir) resultados.registrar(operacion, latencia, estado);
+        if (operacion == Operacion.CREAR && estado == 200) {
+            recordarCreado(respuesta.body());
+        }
+    }
+    
+    private Operacion elegirOperacion() {
+        Operacion operacion = ruleta[random.nextInt(ruleta.length)];
+        // Solo se borran productos creados por la propia prueba
+        if (operacion == Operacion.ELIMINAR && idsCreados.isEmpty()) {
+            return Operacion.CREAR;
+        }
+        return operacion;
+    }
+    
+    private String iniciarSesion() throws IOException {
+        HttpRequest peticion = json(HttpRequest.newBuilder(uri("/api/auth/login")).timeout(Duration.ofSeconds(30)),
+                "POST", Map.of("username", PruebaCarga.usuarioAdmin(1), "password", PruebaCarga.PASSWORD_ADMIN));
+        try {
+            HttpResponse<byte[]> respuesta = cliente.send(peticion, HttpResponse.BodyHandlers.ofByteArray());
+            JsonNode cuerpo = objectMapper.readTree(respuesta.body());
+            if (respuesta.statusCode() != 200 || !cuerpo.hasNonNull("token")) {
+                throw new IOException("No se pudo iniciar sesión para la prueba: HTTP " + respuesta.statusCode());
+            }
+            return cuerpo.get("token").asText();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Inicio de sesión interrumpido", e);
+        }
+    }
+    
+    private HttpRequest construir(Operacion operacion, Long idEliminado) {
+        HttpRequest.Builder peticion = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30));
+        if (operacion != Operacion.LOGIN) {
+            peticion.header("Authorization", "Bearer " + token);
+        }
+        return switch (operacion) {
+            case LISTADO_PAGINA -> peticion.uri(uri("/api/productos?limit=50")).GET().build();
+            case LISTADO_COMPLETO -> peticion.uri(uri("/api/productos")).GET().build();
+            case BUSCAR -> peticion.uri(uri("/api/productos/buscar?nombre="
+                    + codificar(TERMINOS_BUSQUEDA[random.nextInt(TERMINOS_BUSQUEDA.length)]))).GET().build();
+            case DETALLE -> peticion.uri(uri("/api/productos/" + idAleatorio())).GET().build();
+            case CREAR -> json(peticion.uri(uri("/api/productos")), "POST", productoAleatorio());
+            case ACTUALIZAR -> json(peticion.uri(uri("/api/productos/" + idAleatorio())), "PUT", productoAleatorio());
+            case ELIMINAR -> peticion.uri(uri("/api/productos/" + idEliminado)).DELETE().build();
+            case LOGIN -> json(peticion.uri(uri("/api/auth/login")), "POST", Map.of(
+                    "username", PruebaCarga.usuarioAdmin(1 + random.nextInt(config.administradores())),
+                    "password", PruebaCarga.PASSWORD_ADMIN));
+            case LISTADO_PAGINA_REACTIVO -> peticion.uri(uri("/api/reactivo/productos?limit=50")).GET().build();
+            case BUSCAR_REACTIVO -> peticion.uri(uri("/api/reactivo/productos/buscar?nombre="
+                    + codificar(TERMINOS_BUSQUEDA[random.nextInt(TERMINOS_BUSQUEDA.length)]))).GET().build();
+            case DETALLE_REACTIVO -> peticion.uri(uri("/api/reactivo/productos/" + idAleatorio())).GET().build();
+            case SUBIR_IMAGEN -> peticion.uri(uri("/api/upload/imagen"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + SEPARADOR)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(cuerposSubida.get(random.nextInt(cuerposSubida.size()))))
+                    .build();
+        };
+    }
+    
+    private HttpRequest json(HttpRequest.Builder peticion, String metodo, Object cuerpo) {
+        try {
+            return peticion.header("Content-Type", "application/json")
+                    .method(metodo, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(cuerpo)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private Map<String, Object> productoAleatorio() {
+        int numero = random.nextInt(1_000_000);
+        return Map.of(
+                "nombre", "Producto de carga " + numero,
+                "descripcion", "Creado por la prueba de carga",
+                "precio", BigDecimal.valueOf(random.nextInt(500, 20_000), 2),
+                "categoria", CATEGORIAS[random.nextInt(CATEGORIAS.length)],
+                "ofertaEspecial", random.nextInt(10) == 0);
+    }
+    
+    // Los productos sembrados y los creados por la prueba que no se han borrado
+    private long idAleatorio() {
+        Long creado = random.nextInt(4) == 0 ? idsCreados.peekLast() : null;
+        return creado != null ? creado : idsSembrados.get(random.nextInt(idsSembrados.size()));
+    }
+    
+    private void recordarCreado(byte[] cuerpo) {
+        try {
+            JsonNode producto = objectMapper.readTree(cuerpo);
+            if (producto.hasNonNull("id")) idsCreados.addLast(producto.get("id").asLong());
+        } catch (IOException e) {
+            // Respuesta sin JSON: no se podrá borrar ese producto, no afecta a la medida
+        }
+    }
+    
+    private URI uri(String ruta) {
+        return URI.create(baseUrl + ruta);
+    }
+    
+    private static String codificar(String texto) {
+        return java.net.URLEncoder.encode(texto, StandardCharsets.UTF_8);
+    }
+    
+    private static void esperarHasta(long instante) {
+        long restante;
+        while ((restante = instante - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(restante);
+        }
+    }
+    
+    private static byte[] jpegDePrueba(int semilla) throws IOException {
+        BufferedImage imagen = new BufferedImage(640, 480, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = imagen.createGraphics();
+        try {
+            g.setColor(Color.getHSBColor(semilla / (float) IMAGENES_DISTINTAS, 0.6f, 0.9f));
+            g.fillRect(0, 0, 640, 480);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString("Prueba de carga " + semilla, 40, 240);
+        } finally {
+            g.dispose();
+        }
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ImageIO.write(imagen, "jpg", salida);
+        return salida.toByteArray();
+    }
+    
+    private static byte[] cuerpoMultipart(byte[] imagen, String nombre) {
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream();
+        String cabecera = "--" + SEPARADOR + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + nombre + "\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n";
+        cuerpo.writeBytes(cabecera.getBytes(StandardCharsets.UTF_8));
+        cuerpo.writeBytes(imagen);
+        cuerpo.writeBytes(("\r\n--" + SEPARADOR + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return cuerpo.toByteArray();
+    }
+}
@@ -0,0 +1,50 @@
+package com.tienda.admin.carga;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pico de heap y de hilos de plataforma durante la prueba, muestreados cada 100 ms.
+ * La aplicación y el generador comparten JVM, así que las cifras incluyen a ambos: sirven
+ * para comparar ejecuciones con la misma configuración de carga, no como valor absoluto.
+ * Los hilos virtuales no cuentan como hilos de plataforma.
+ */
+final class MuestreoRecursos implements AutoCloseable {
+    
+    private final MemoryMXBean memoria = ManagementFactory.getMemoryMXBean();
+    private final ThreadMXBean hilos = ManagementFactory.getThreadMXBean();
+    private final AtomicLong picoHeap = new AtomicLong();
+    private final ScheduledExecutorService muestreador;
+    
+    MuestreoRecursos() {
+        hilos.resetPeakThreadCount();
+        muestreador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "muestreo-recursos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        muestreador.scheduleAtFixedRate(
+                () -> picoHeap.accumulateAndGet(memoria.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 100, TimeUnit.MILLISECONDS);
+    }
+    
+    Map<String, Object> resumen(boolean hilosVirtuales) {
+        Map<String, Object> resumen = new LinkedHashMap<>();
+        resumen.put("hilosVirtuales", hilosVirtuales);
+        resumen.put("picoHeapMb", picoHeap.get() / (1024 * 1024));
+        resumen.put("picoHilosPlataforma", hilos.getPeakThreadCount());
+        return resumen;
+    }
+    
+    @Override
+    public void close() {
+        muestreador.shutdownNow();
+    }
+}
@@ -0,0 +1,62 @@
+package com.tienda.admin.carga;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/** Operaciones que genera la prueba de carga, cada una contra un endpoint. */
+enum Operacion {
+    LISTADO_PAGINA("GET /api/productos?limit=50", 30),
+    LISTADO_COMPLETO("GET /api/productos", 5),
+    BUSCAR("GET /api/productos/buscar", 20),
+    DETALLE("GET /api/productos/{id}", 20),
+    CREAR("POST /api/productos", 5),
+    ACTUALIZAR("PUT /api/productos/{id}", 5),
+    ELIMINAR("DELETE /api/productos/{id}", 3),
+    LOGIN("POST /api/auth/login", 7),
+    SUBIR_IMAGEN("POST /api/upload/imagen", 5),
+    // API reactiva: solo con el perfil "reactivo" y si se nombran en carga.mezcla
+    LISTADO_PAGINA_REACTIVO("GET /api/reactivo/productos?limit=50", 0),
+    BUSCAR_REACTIVO("GET /api/reactivo/productos/buscar", 0),
+    DETALLE_REACTIVO("GET /api/reactivo/productos/{id}", 0);
+    
+    private final String endpoint;
+    private final int pesoPorDefecto;
+    
+    Operacion(String endpoint, int pesoPorDefecto) {
+        this.endpoint = endpoint;
+        this.pesoPorDefecto = pesoPorDefecto;
+    }
+    
+    String endpoint() {
+        return endpoint;
+    }
+    
+    String clave() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+    
+    static Map<Operacion, Integer> mezclaPorDefecto() {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        for (Operacion operacion : values()) {
+            mezcla.put(operacion, operacion.pesoPorDefecto);
+        }
+        return mezcla;
+    }
+    
+    /** "listado_pagina:30,buscar:20": las operaciones no nombradas quedan con peso 0. */
+    static Map<Operacion, Integer> parsearMezcla(String definicion) {
+        Map<Operacion, Integer> mezcla = new EnumMap<>(Operacion.class);
+        for (Operacion operacion : values()) {
+            mezcla.put(operacion, 0);
+        }
+        for (String parte : definicion.split(",")) {
+            String[] claveValor = parte.trim().split(":");
+            if (claveValor.length != 2) {
+                throw new IllegalArgumentException("Mezcla mal definida: " + parte);
+            }
+            mezcla.put(valueOf(claveValor[0].trim().toUpperCase(Locale.ROOT)), Integer.parseInt(claveValor[1].trim()));
+        }
+        return mezcla;
+    }
+}
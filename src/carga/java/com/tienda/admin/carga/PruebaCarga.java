@@ -0,0 +1,226 @@
+package com.tienda.admin.carga;
+
+import com.tienda.admin.AdminPanelApplication;
+import com.tienda.admin.service.ProductoService;
+import com.tienda.admin.service.VersionCatalogo;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Prueba de carga de extremo a extremo.
+ * <p>
+ * Arranca un PostgreSQL embebido, levanta la aplicación contra él (nunca contra la base de
+ * datos de application.properties), siembra productos y administradores y lanza una mezcla
+ * de tráfico HTTP a ritmo constante. Al terminar escribe latencias p50/p95/p99 y
+ * throughput por endpoint en un JSON.
+ * <p>
+ * PostgreSQL no arranca como root: la prueba debe lanzarse con un usuario normal.
+ * <p>
+ * Los argumentos {@code carga.*=valor} configuran la prueba (ver {@link Configuracion});
+ * el resto se pasan a la aplicación, p. ej. {@code --seguridad.login.backend=jdbc}.
+ */
+public final class PruebaCarga {
+    
+    static final String PASSWORD_ADMIN = "carga123";
+    
+    private static final String[] PRENDAS = {"Camiseta", "Pantalón", "Chaqueta", "Zapatilla", "Bolso",
+            "Gorra", "Vestido", "Sudadera", "Bufanda", "Cinturón", "Lámpara", "Cojín", "Auriculares"};
+    private static final String[] MATERIALES = {"algodón", "lino", "cuero", "lana", "denim", "seda", "bambú"};
+    private static final String[] COLORES = {"azul", "rojo", "negro", "blanco", "verde", "gris", "beige"};
+    private static final String[] CATEGORIAS = {"Ropa", "Calzado", "Accesorios", "Hogar", "Electrónica"};
+    
+    private PruebaCarga() {}
+    
+    public static void main(String[] args) throws Exception {
+        Configuracion config = Configuracion.desdeArgumentos(args);
+        
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            System.out.println("🐘 PostgreSQL embebido en el puerto " + postgres.getPort());
+            
+            ConfigurableApplicationContext contexto = SpringApplication.run(
+                    AdminPanelApplication.class, argumentosAplicacion(postgres, config));
+            try {
+                List<Long> ids = sembrar(contexto, config);
+                int puerto = contexto.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                
+                if (config.conexiones() > 0) {
+                    System.out.printf("🚀 %d conexiones concurrentes durante %s (calentamiento %s) contra el puerto %d%n",
+                            config.conexiones(), config.duracion(), config.calentamiento(), puerto);
+                } else {
+                    System.out.printf("🚀 %d req/s durante %s (calentamiento %s) contra el puerto %d%n",
+                            config.rps(), config.duracion(), config.calentamiento(), puerto);
+                }
+                
+                GeneradorTrafico generador = new GeneradorTrafico("http://localhost:" + puerto, config, ids);
+                ResultadosCarga resultados;
+                Map<String, Object> recursos;
+                try (MuestreoRecursos muestreo = new MuestreoRecursos()) {
+                    resultados = generador.ejecutar();
+                    recursos = muestreo.resumen(hilosVirtuales(contexto));
+                }
+                
+                Path salida = Path.of(config.salida()).toAbsolutePath();
+                resultados.escribir(salida, config.comoMapa(), recursos);
+                System.out.println(resultados.tabla());
+                System.out.println("🧠 " + recursos);
+                System.out.println("📄 Resultados en " + salida);
+            } finally {
+                contexto.close();
+            }
+        }
+    }
+    
+    // Las propiedades por línea de comandos tienen prioridad sobre application.properties
+    private static String[] argumentosAplicacion(EmbeddedPostgres postgres, Configuracion config) {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.datasource.hikari.data-source-properties.sslmode=disable",
+                "--spring.datasource.hikari.data-source-properties.ssl=false",
+                "--spring.jpa.show-sql=false",
+                "--server.port=0",
+                // Todo el tráfico sale de 127.0.0.1: el límite por IP bloquearía los logins
+                "--seguridad.login.max-intentos-ip=1000000",
+                "--seguridad.login.max-intentos-usuario=1000000",
+                // El log por consola a INFO de cada petición acabaría midiendo la consola
+                "--logging.level.root=WARN",
+                "--logging.level.com.tienda=WARN"
+        ));
+        if (config.hilosVirtuales()) {
+            argumentos.add("--spring.threads.virtual.enabled=true");
+        }
+        if (config.conexiones() > 0) {
+            // Tomcat acepta 8192 conexiones por defecto; el resto esperarían en el backlog
+            argumentos.add("--server.tomcat.max-connections=" + (config.conexiones() + 1000));
+            argumentos.add("--server.tomcat.accept-count=1000");
+        }
+        argumentos.addAll(config.argumentosAplicacion());
+        return argumentos.toArray(String[]::new);
+    }
+    
+    // Igual que Spring Boot: la opción solo tiene efecto a partir de Java 21
+    private static boolean hilosVirtuales(ConfigurableApplicationContext contexto) {
+        return contexto.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+    }
+    
+    private static List<Long> sembrar(ConfigurableApplicationContext contexto, Configuracion config) {
+        JdbcTemplate jdbc = contexto.getBean(JdbcTemplate.class);
+        SplittableRandom random = new SplittableRandom(config.semilla());
+        long inicio = System.currentTimeMillis();
+        
+        List<Object[]> lote = new ArrayList<>();
+        for (int i = 1; i <= config.productos(); i++) {
+            String nombre = PRENDAS[random.nextInt(PRENDAS.length)] + " de " + MATERIALES[random.nextInt(MATERIALES.length)]
+                    + " " + COLORES[random.nextInt(COLORES.length)] + " " + i;
+            BigDecimal precio = BigDecimal.valueOf(random.nextInt(500, 20_000), 2);
+            lote.add(new Object[]{nombre, "Descripción de " + nombre.toLowerCase(), precio,
+                    CATEGORIAS[random.nextInt(CATEGORIAS.length)], random.nextInt(10) == 0});
+            
+            if (lote.size() == 1000 || i == config.productos()) {
+                jdbc.batchUpdate("INSERT INTO productos (nombre, descripcion, precio, categoria, oferta_especial, " +
+                        "created_at, updated_at) VALUES (?, ?, ?, ?, ?, NOW(), NOW())", lote);
+                lote.clear();
+            }
+        }
+        
+        // Mismo hash para todos: el coste de BCrypt es el que ha calibrado la aplicación
+        String hash = contexto.getBean(BCryptPasswordEncoder.class).encode(PASSWORD_ADMIN);
+        for (int i = 1; i <= config.administradores(); i++) {
+            lote.add(new Object[]{usuarioAdmin(i), hash, usuarioAdmin(i) + "@carga.local", "Admin de carga " + i});
+        }
+        jdbc.batchUpdate("INSERT INTO administradores (username, password_hash, email, nombre, activo, created_at) " +
+                "VALUES (?, ?, ?, ?, true, NOW())", lote);
+        
+        // El índice de búsqueda y la versión del catálogo se fijan al arrancar, antes de la siembra
+        contexto.getBean(ProductoService.class).reconstruirIndiceBusqueda();
+        contexto.getBean(VersionCatalogo.class).refrescar();
+        
+        System.out.printf("🌱 %d productos y %d administradores sembrados en %d ms%n",
+                config.productos(), config.administradores(), System.currentTimeMillis() - inicio);
+        return jdbc.queryForList("SELECT id FROM productos", Long.class);
+    }
+    
+    static String usuarioAdmin(int numero) {
+        return String.format("carga%03d", numero);
+    }
+    
+    /**
+     * Parámetros de la prueba. Valores por defecto entre paréntesis:
+     * carga.productos (10000), carga.administradores (20), carga.rps (100),
+     * carga.duracion (PT60S), carga.calentamiento (PT10S), carga.max-en-vuelo (256),
+     * carga.conexiones (0: bucle abierto; N: N clientes concurrentes en bucle cerrado, ignora rps),
+     * carga.hilos-virtuales (false; equivale a --spring.threads.virtual.enabled, Java 21+),
+     * carga.semilla (42), carga.salida (resultado-carga.json) y carga.mezcla con pesos
+     * por operación, p. ej. "listado_pagina:30,buscar:20,login:5".
+     */
+    record Configuracion(int productos, int administradores, int rps, Duration duracion, Duration calentamiento,
+                         int maxEnVuelo, int conexiones, boolean hilosVirtuales, long semilla, String salida, Map<Operacion, Integer> mezcla,
+                         List<String> argumentosAplicacion) {
+        
+        static Configuracion desdeArgumentos(String[] args) {
+            Map<String, String> valores = new LinkedHashMap<>();
+            List<String> resto = new ArrayList<>();
+            for (String arg : args) {
+                String nombre = arg.startsWith("--") ? arg.substring(2) : arg;
+                if (nombre.startsWith("carga.") && nombre.contains("=")) {
+                    int igual = nombre.indexOf('=');
+                    valores.put(nombre.substring("carga.".length(), igual), nombre.substring(igual + 1));
+                } else {
+                    resto.add(arg);
+                }
+            }
+            
+            Map<Operacion, Integer> mezcla = Operacion.mezclaPorDefecto();
+            if (valores.containsKey("mezcla")) {
+                mezcla = Operacion.parsearMezcla(valores.get("mezcla"));
+            }
+            
+            return new Configuracion(
+                    Integer.parseInt(valores.getOrDefault("productos", "10000")),
+                    Integer.parseInt(valores.getOrDefault("administradores", "20")),
+                    Integer.parseInt(valores.getOrDefault("rps", "100")),
+                    Duration.parse(valores.getOrDefault("duracion", "PT60S")),
+                    Duration.parse(valores.getOrDefault("calentamiento", "PT10S")),
+                    Integer.parseInt(valores.getOrDefault("max-en-vuelo", "256")),
+                    Integer.parseInt(valores.getOrDefault("conexiones", "0")),
+                    Boolean.parseBoolean(valores.getOrDefault("hilos-virtuales", "false")),
+                    Long.parseLong(valores.getOrDefault("semilla", "42")),
+                    valores.getOrDefault("salida", "resultado-carga.json"),
+                    mezcla,
+                    resto);
+        }
+        
+        Map<String, Object> comoMapa() {
+            Map<String, Object> mapa = new LinkedHashMap<>();
+            mapa.put("productos", productos);
+            mapa.put("administradores", administradores);
+            mapa.put("rpsObjetivo", rps);
+            mapa.put("duracion", duracion.toString());
+            mapa.put("calentamiento", calentamiento.toString());
+            mapa.put("maxEnVuelo", maxEnVuelo);
+            mapa.put("conexiones", conexiones);
+            mapa.put("hilosVirtuales", hilosVirtuales);
+            mapa.put("semilla", semilla);
+            Map<String, Integer> pesos = new LinkedHashMap<>();
+            mezcla.forEach((operacion, peso) -> pesos.put(operacion.clave(), peso));
+            mapa.put("mezcla", pesos);
+            mapa.put("argumentosAplicacion", argumentosAplicacion);
+            return mapa;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.tienda.admin.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Latencias y códigos de estado por operación, con el informe final en JSON. */
+final class ResultadosCarga {
+    
+    private final Map<Operacion, Serie> series = new EnumMap<>(Operacion.class);
+    private double segundosMedidos;
+    
+    ResultadosCarga() {
+        for (Operacion operacion : Operacion.values()) {
+            series.put(operacion, new Serie());
+        }
+    }
+    
+    /** estado = código HTTP, o -1 si la petición falló sin respuesta. */
+    void registrar(Operacion operacion, long latenciaNanos, int estado) {
+        series.get(operacion).registrar(latenciaNanos, estado);
+    }
+    
+    void descartada(Operacion operacion) {
+        series.get(operacion).descartadas.increment();
+    }
+    
+    void cerrar(Duration duracion) {
+        segundosMedidos = duracion.toNanos() / 1e9;
+    }
+    
+    void escribir(Path destino, Map<String, Object> configuracion, Map<String, Object> recursos) throws IOException {
+        Map<String, Object> informe = new LinkedHashMap<>();
+        informe.put("fecha", Instant.now().toString());
+        informe.put("configuracion", configuracion);
+        informe.put("recursos", recursos);
+        informe.put("segundosMedidos", segundosMedidos);
+        
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long total = 0;
+        for (Map.Entry<Operacion, Serie> entrada : series.entrySet()) {
+            Serie serie = entrada.getValue();
+            if (serie.cantidad() == 0 && serie.descartadas.sum() == 0) continue;
+            endpoints.put(entrada.getKey().clave(), serie.resumen(entrada.getKey(), segundosMedidos));
+            total += serie.cantidad();
+        }
+        informe.put("throughputTotal", redondear(total / segundosMedidos));
+        informe.put("endpoints", endpoints);
+        
+        if (destino.getParent() != null) Files.createDirectories(destino.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(destino.toFile(), informe);
+    }
+    
+    String tabla() {
+        StringBuilder tabla = new StringBuilder(String.format("%n%-24s %8s %7s %9s %9s %9s %9s %9s%n",
+                "operación", "peticiones", "errores", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+        series.forEach((operacion, serie) -> {
+            if (serie.cantidad() == 0) return;
+            long[] ordenadas = serie.ordenadas();
+            tabla.append(String.format("%-24s %8d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    operacion.clave(), ordenadas.length, serie.errores.sum(), ordenadas.length / segundosMedidos,
+                    ms(percentil(ordenadas, 0.50)), ms(percentil(ordenadas, 0.95)),
+                    ms(percentil(ordenadas, 0.99)), ms(ordenadas[ordenadas.length - 1])));
+        });
+        return tabla.toString();
+    }
+    
+    private static long percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) return 0;
+        int indice = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(0, Math.min(indice, ordenadas.length - 1))];
+    }
+    
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+    
+    private static double redondear(double valor) {
+        return Math.round(valor * 100) / 100.0;
+    }
+    
+    private static final class Serie {
+        private long[] latencias = new long[1024];
+        private int cantidad;
+        private final LongAdder errores = new LongAdder();
+        private final LongAdder descartadas = new LongAdder();
+        private final Map<Integer, LongAdder> estados = new ConcurrentHashMap<>();
+        
+        void registrar(long latenciaNanos, int estado) {
+            synchronized (this) {
+                if (cantidad == latencias.length) {
+                    latencias = Arrays.copyOf(latencias, cantidad * 2);
+                }
+                latencias[cantidad++] = latenciaNanos;
+            }
+            estados.computeIfAbsent(estado, e -> new LongAdder()).increment();
+            if (estado < 200 || estado >= 400) errores.increment();
+        }
+        
+        synchronized int cantidad() {
+            return cantidad;
+        }
+        
+        synchronized long[] ordenadas() {
+            long[] copia = Arrays.copyOf(latencias, cantidad);
+            Arrays.sort(copia);
+            return copia;
+        }
+        
+        Map<String, Object> resumen(Operacion operacion, double segundos) {
+            long[] ordenadas = ordenadas();
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("endpoint", operacion.endpoint());
+            resumen.put("peticiones", ordenadas.length);
+            resumen.put("errores", errores.sum());
+            resumen.put("descartadas", descartadas.sum());
+            resumen.put("throughput", redondear(ordenadas.length / segundos));
+            
+            Map<String, Long> porEstado = new TreeMap<>();
+            estados.forEach((estado, cuenta) -> porEstado.put(estado < 0 ? "sin_respuesta" : String.valueOf(estado), cuenta.sum()));
+            resumen.put("estados", porEstado);
+            
+            Map<String, Double> latencia = new LinkedHashMap<>();
+            if (ordenadas.length > 0) {
+                latencia.put("p50", redondear(ms(percentil(ordenadas, 0.50))));
+                latencia.put("p95", redondear(ms(percentil(ordenadas, 0.95))));
+                latencia.put("p99", redondear(ms(percentil(ordenadas, 0.99))));
+                latencia.put("max", redondear(ms(ordenadas[ordenadas.length - 1])));
+                latencia.put("media", redondear(ms((long) Arrays.stream(ordenadas).average().orElse(0))));
+            }
+            resumen.put("latenciaMs", latencia);
+            return resumen;
+        }
+    }
+}
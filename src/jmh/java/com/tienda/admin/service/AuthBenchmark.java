@@ -0,0 +1,95 @@
+package com.tienda.admin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tienda.admin.model.Administrador;
+import com.tienda.admin.repository.AdministradorRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login completo con el repositorio simulado: rate limiting, BCrypt en su pool,
+ * registro de last_login y emisión del token. El coste BCrypt domina; el parámetro
+ * permite ver cuánto pesa el resto del camino.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class AuthBenchmark {
+    
+    private static final String PASSWORD = "admin123";
+    
+    @Param({"4", "10"})
+    private int costeBcrypt;
+    
+    private AuthService authService;
+    private VerificadorPasswords verificadorPasswords;
+    
+    @Setup
+    public void preparar() {
+        Fixtures.silenciarLogs();
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(costeBcrypt);
+        
+        Administrador admin = new Administrador();
+        admin.setId(1L);
+        admin.setUsername("admin");
+        admin.setPasswordHash(encoder.encode(PASSWORD));
+        admin.setActivo(true);
+        
+        AdministradorRepository repositorio = Fixtures.repositorio(AdministradorRepository.class,
+                Map.of("findByUsernameAndActivoTrue", args -> "admin".equals(args[0]) ? Optional.of(admin) : Optional.empty()));
+        
+        AlmacenIntentosMemoria almacen = new AlmacenIntentosMemoria();
+        Fixtures.inyectar(almacen, "maxEntradas", 100_000);
+        LimitadorIntentosLogin limitador = new LimitadorIntentosLogin(almacen);
+        // Sin límite efectivo: los fallos del benchmark no deben bloquear la cuenta
+        Fixtures.inyectar(limitador, "maxIntentosUsuario", Integer.MAX_VALUE);
+        Fixtures.inyectar(limitador, "maxIntentosIp", Integer.MAX_VALUE);
+        Fixtures.inyectar(limitador, "ventana", Duration.ofMinutes(15));
+        
+        TokenService tokenService = new TokenService(new ObjectMapper());
+        Fixtures.inyectar(tokenService, "clavesConfiguradas", "");
+        Fixtures.inyectar(tokenService, "ttl", Duration.ofHours(8));
+        tokenService.init();
+        
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        verificadorPasswords = new VerificadorPasswords(encoder, meterRegistry, 0, 1024, 5000);
+        
+        // Un único administrador: nunca se llega al umbral de vaciado ni a la base de datos
+        RegistroUltimoLogin registro = new RegistroUltimoLogin(null, null, meterRegistry);
+        registro.registrarMetricas();
+        Fixtures.inyectar(registro, "umbral", Integer.MAX_VALUE);
+        
+        authService = new AuthService(repositorio, encoder, limitador, tokenService, verificadorPasswords, registro,
+                meterRegistry);
+    }
+    
+    @TearDown
+    public void cerrar() {
+        verificadorPasswords.detener();
+    }
+    
+    @Benchmark
+    public AuthService.LoginResult loginCorrecto() {
+        return authService.authenticate("admin", PASSWORD, "10.0.0.1");
+    }
+    
+    @Benchmark
+    public AuthService.LoginResult passwordIncorrecta() {
+        return authService.authenticate("admin", "incorrecta", "10.0.0.1");
+    }
+    
+    // Sin BCrypt: usuario inexistente, solo búsqueda y rate limiting
+    @Benchmark
+    public AuthService.LoginResult usuarioInexistente() {
+        return authService.authenticate("nadie", PASSWORD, "10.0.0.1");
+    }
+}
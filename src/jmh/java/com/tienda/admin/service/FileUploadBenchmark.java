@@ -0,0 +1,81 @@
+package com.tienda.admin.service;
+
+import com.tienda.admin.repository.ImagenAlmacenadaRepository;
+import com.tienda.admin.repository.ProductoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validación y guardado de una subida: detección del tipo, SHA-256 y escritura al disco
+ * por el buffer directo. Los ficheros van al uploads/ del directorio de trabajo del
+ * benchmark (target/jmh), nunca al del proyecto.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class FileUploadBenchmark {
+    
+    @Param({"65536", "2097152"})
+    private int tamano;
+    
+    private FileUploadService fileUploadService;
+    private Fixtures.ArchivoEnMemoria archivo;
+    
+    @Setup
+    public void preparar() {
+        Fixtures.silenciarLogs();
+        
+        // Cabecera JPEG y el resto aleatorio: el contenido no se decodifica al guardar
+        byte[] datos = new byte[tamano];
+        new Random(42).nextBytes(datos);
+        datos[0] = (byte) 0xFF;
+        datos[1] = (byte) 0xD8;
+        datos[2] = (byte) 0xFF;
+        archivo = new Fixtures.ArchivoEnMemoria("foto.jpg", "image/jpeg", datos);
+        
+        // Sin variantes: se generan en segundo plano y no forman parte de la subida
+        ImagenAlmacenadaRepository imagenRepository = Fixtures.repositorio(ImagenAlmacenadaRepository.class, Map.of());
+        ProcesadorImagenes procesador = new ProcesadorImagenes(1, 1, imagenRepository) {
+            @Override
+            public void generarVariantesAsync(Path original) {
+            }
+        };
+        AlmacenImagenes almacen = new AlmacenImagenes(
+                imagenRepository,
+                Fixtures.repositorio(ProductoRepository.class, Map.of()),
+                procesador,
+                // Solo lo usan el recolector y el borrado, no la subida
+                new TransactionTemplate());
+        
+        fileUploadService = new FileUploadService();
+        Fixtures.inyectar(fileUploadService, "almacenImagenes", almacen);
+        Fixtures.inyectar(fileUploadService, "meterRegistry", new SimpleMeterRegistry());
+        Fixtures.inyectar(fileUploadService, "hilosSubida", 1);
+        Fixtures.inyectar(fileUploadService, "colaSubida", 1);
+        fileUploadService.init();
+    }
+    
+    @TearDown
+    public void cerrar() {
+        fileUploadService.detener();
+    }
+    
+    @Benchmark
+    public void validar() throws Exception {
+        fileUploadService.validarArchivo(archivo);
+    }
+    
+    @Benchmark
+    public String guardar() throws Exception {
+        return fileUploadService.guardarImagen(archivo);
+    }
+}
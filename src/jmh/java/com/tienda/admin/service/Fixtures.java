@@ -0,0 +1,133 @@
+package com.tienda.admin.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.tienda.admin.model.Producto;
+import com.tienda.admin.repository.ImagenAlmacenadaRepository;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Piezas comunes de los benchmarks: servicios montados a mano, sin contexto Spring ni
+ * base de datos, para medir solo el código de la capa de servicio.
+ */
+final class Fixtures {
+    
+    private static final String[] CATEGORIAS = {"Ropa", "Calzado", "Accesorios", "Hogar", "Electrónica"};
+    
+    private Fixtures() {}
+    
+    /** Asigna un campo privado (inyección por campo o @Value) como lo haría Spring. */
+    static void inyectar(Object destino, String campo, Object valor) {
+        Field field = ReflectionUtils.findField(destino.getClass(), campo);
+        if (field == null) {
+            throw new IllegalArgumentException(destino.getClass().getSimpleName() + " no tiene el campo " + campo);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, destino, valor);
+    }
+    
+    /**
+     * Repositorio falso: los métodos con respuesta definida la devuelven y el resto
+     * devuelve vacío (Optional.empty, 0, false o null).
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T repositorio(Class<T> tipo, Map<String, Function<Object[], Object>> respuestas) {
+        return (T) Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[]{tipo}, (proxy, metodo, args) -> {
+            Function<Object[], Object> respuesta = respuestas.get(metodo.getName());
+            if (respuesta != null) return respuesta.apply(args);
+            if (metodo.getDeclaringClass() == Object.class) return objeto(proxy, metodo, args);
+            return vacio(metodo.getReturnType());
+        });
+    }
+    
+    private static Object objeto(Object proxy, Method metodo, Object[] args) {
+        return switch (metodo.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> "Stub";
+        };
+    }
+    
+    private static Object vacio(Class<?> tipo) {
+        if (tipo == Optional.class) return Optional.empty();
+        if (tipo == boolean.class) return false;
+        if (tipo == int.class) return 0;
+        if (tipo == long.class) return 0L;
+        return null;
+    }
+    
+    /** Productos con datos realistas; uno de cada tres sin imagen subida. */
+    static List<Producto> productos(int cantidad) {
+        List<Producto> productos = new ArrayList<>(cantidad);
+        LocalDateTime fecha = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int i = 1; i <= cantidad; i++) {
+            Producto producto = new Producto();
+            producto.setId((long) i);
+            producto.setNombre("Producto de catálogo número " + i);
+            producto.setDescripcion("Descripción del producto " + i + ", con materiales, tallas y cuidados.");
+            producto.setPrecio(new BigDecimal(9 + i % 90 + ".95"));
+            producto.setCategoria(CATEGORIAS[i % CATEGORIAS.length]);
+            producto.setOfertaEspecial(i % 7 == 0);
+            producto.setImagen(i % 3 == 0
+                    ? "https://cdn.ejemplo.com/externas/" + i + ".jpg"
+                    : "http://localhost:8080/uploads/ab/cd/" + String.format("%064x", i) + ".jpg");
+            producto.setCreatedAt(fecha);
+            producto.setUpdatedAt(fecha);
+            productos.add(producto);
+        }
+        return productos;
+    }
+    
+    // Con las variantes de las imágenes subidas de {@code productos} ya registradas
+    static ProcesadorImagenes procesadorImagenes(List<Producto> productos) {
+        List<Object[]> filas = productos.stream()
+                .map(producto -> AlmacenImagenes.rutaRelativa(producto.getImagen()))
+                .filter(Objects::nonNull)
+                .map(ruta -> new Object[]{ruta, "detail,card,thumb"})
+                .toList();
+        ProcesadorImagenes procesador = new ProcesadorImagenes(1, 1, repositorio(ImagenAlmacenadaRepository.class,
+                Map.of("findVariantesGeneradas", args -> filas)));
+        procesador.cargarVariantesRegistradas();
+        return procesador;
+    }
+    
+    // Los servicios registran a INFO en cada operación; en el benchmark solo se mide el servicio
+    static void silenciarLogs() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+    
+    /** MultipartFile en memoria, como el que entrega Spring tras leer la parte. */
+    record ArchivoEnMemoria(String nombre, String tipo, byte[] datos) implements MultipartFile {
+        
+        @Override public String getName() { return "file"; }
+        @Override public String getOriginalFilename() { return nombre; }
+        @Override public String getContentType() { return tipo; }
+        @Override public boolean isEmpty() { return datos.length == 0; }
+        @Override public long getSize() { return datos.length; }
+        @Override public byte[] getBytes() { return datos; }
+        @Override public InputStream getInputStream() { return new ByteArrayInputStream(datos); }
+        
+        @Override
+        public void transferTo(File destino) throws java.io.IOException {
+            Files.write(destino.toPath(), datos);
+        }
+    }
+}
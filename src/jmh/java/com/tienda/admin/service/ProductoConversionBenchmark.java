@@ -0,0 +1,55 @@
+package com.tienda.admin.service;
+
+import com.tienda.admin.dto.ProductoDTO;
+import com.tienda.admin.model.Producto;
+import com.tienda.admin.repository.ProductoRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión entidad → DTO: un producto suelto y el listado completo que sirve
+ * GET /api/productos cuando la caché está fría.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ProductoConversionBenchmark {
+    
+    @Param({"50", "500"})
+    private int productos;
+    
+    private ProductoService productoService;
+    private List<Producto> catalogo;
+    private Producto producto;
+    
+    @Setup
+    public void preparar() {
+        catalogo = Fixtures.productos(productos);
+        producto = catalogo.get(0);
+        
+        productoService = new ProductoService();
+        Fixtures.inyectar(productoService, "productoRepository", Fixtures.repositorio(ProductoRepository.class,
+                Map.of("findAllByOrderByNombreAsc", args -> catalogo)));
+        Fixtures.inyectar(productoService, "indiceBusqueda", new IndiceBusquedaProductos());
+        Fixtures.inyectar(productoService, "procesadorImagenes", Fixtures.procesadorImagenes(catalogo));
+        Fixtures.inyectar(productoService, "meterRegistry", new SimpleMeterRegistry());
+        productoService.registrarMetricas();
+    }
+    
+    @Benchmark
+    public ProductoDTO convertirUno() {
+        return productoService.convertirADTO(producto);
+    }
+    
+    @Benchmark
+    public List<ProductoDTO> convertirListado() {
+        return productoService.obtenerTodosLosProductos();
+    }
+}
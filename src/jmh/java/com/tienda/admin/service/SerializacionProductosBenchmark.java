@@ -0,0 +1,54 @@
+package com.tienda.admin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.tienda.admin.dto.ProductoDTO;
+import com.tienda.admin.model.Producto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización JSON de List&lt;ProductoDTO&gt; con la misma configuración de Jackson
+ * que usa Spring MVC, a un array de bytes y directamente a un stream.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class SerializacionProductosBenchmark {
+    
+    @Param({"50", "500"})
+    private int productos;
+    
+    private List<ProductoDTO> dtos;
+    private ObjectWriter writer;
+    
+    @Setup
+    public void preparar() {
+        List<Producto> catalogo = Fixtures.productos(productos);
+        ProductoService productoService = new ProductoService();
+        Fixtures.inyectar(productoService, "procesadorImagenes", Fixtures.procesadorImagenes(catalogo));
+        dtos = catalogo.stream().map(productoService::convertirADTO).toList();
+        
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(new TypeReference<List<ProductoDTO>>() {});
+    }
+    
+    @Benchmark
+    public byte[] aBytes() throws Exception {
+        return writer.writeValueAsBytes(dtos);
+    }
+    
+    // Lo que hace el conversor HTTP: escribe en el stream de la respuesta sin array intermedio
+    @Benchmark
+    public void aStream() throws Exception {
+        writer.writeValue(OutputStream.nullOutputStream(), dtos);
+    }
+}
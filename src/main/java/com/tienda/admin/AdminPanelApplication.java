@@ -2,12 +2,12 @@ package com.tienda.admin;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class AdminPanelApplication {
     public static void main(String[] args) {
         SpringApplication.run(AdminPanelApplication.class, args);
-        System.out.println("✅ Aplicación de administración iniciada en http://localhost:8080");
-        System.out.println("✅ API disponible en http://localhost:8080/api/productos");
     }
 }
\ No newline at end of file
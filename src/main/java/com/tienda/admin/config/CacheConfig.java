@@ -0,0 +1,50 @@
+package com.tienda.admin.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    
+    // Producto individual por ID
+    public static final String CACHE_PRODUCTO = "producto";
+    // Lista completa ordenada por nombre (una sola entrada)
+    public static final String CACHE_LISTA_PRODUCTOS = "listaProductos";
+    // Lista de categorías distintas (una sola entrada)
+    public static final String CACHE_CATEGORIAS = "categorias";
+    
+    @Value("${catalogo.cache.producto.max-size:10000}")
+    private long productoMaxSize;
+    
+    @Value("${catalogo.cache.ttl:PT5M}")
+    private Duration ttl;
+    
+    @Bean
+    public CacheManager cacheManager() {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                crearCache(CACHE_PRODUCTO, productoMaxSize),
+                crearCache(CACHE_LISTA_PRODUCTOS, 1),
+                crearCache(CACHE_CATEGORIAS, 1)
+        ));
+        return cacheManager;
+    }
+    
+    private CaffeineCache crearCache(String nombre, long maxSize) {
+        return new CaffeineCache(nombre, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build());
+    }
+}
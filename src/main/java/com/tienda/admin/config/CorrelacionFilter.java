@@ -0,0 +1,68 @@
+package com.tienda.admin.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Asigna a cada petición un identificador de correlación que acompaña a todas sus líneas
+ * de log (MDC "requestId") y se devuelve en la cabecera X-Request-Id. Si el cliente o el
+ * proxy ya envían uno válido, se reutiliza.
+ * <p>
+ * Una fracción de las peticiones ({@code logging.muestreo-debug}) se marca para registrar
+ * también su DEBUG, sin subir el nivel para todo el tráfico.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class CorrelacionFilter extends OncePerRequestFilter {
+
+    public static final String CABECERA = "X-Request-Id";
+    public static final String CLAVE_MDC = "requestId";
+
+    // Lo que venga de fuera acaba en el log: solo se acepta un identificador corto y sin espacios
+    private static final Pattern ID_VALIDO = Pattern.compile("^[A-Za-z0-9._-]{8,64}$");
+
+    private final double muestreoDebug;
+
+    public CorrelacionFilter(@Value("${logging.muestreo-debug:0}") double muestreoDebug) {
+        this.muestreoDebug = muestreoDebug;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader(CABECERA);
+        if (requestId == null || !ID_VALIDO.matcher(requestId).matches()) {
+            requestId = nuevoId();
+        }
+
+        MDC.put(CLAVE_MDC, requestId);
+        if (muestreoDebug > 0 && ThreadLocalRandom.current().nextDouble() < muestreoDebug) {
+            MDC.put(MuestreoDebugTurboFilter.CLAVE_MDC, "true");
+        }
+        response.setHeader(CABECERA, requestId);
+
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(CLAVE_MDC);
+            MDC.remove(MuestreoDebugTurboFilter.CLAVE_MDC);
+        }
+    }
+
+    // 64 bits aleatorios en hexadecimal: basta para correlacionar y no agota la entropía del sistema
+    private static String nuevoId() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+    }
+}
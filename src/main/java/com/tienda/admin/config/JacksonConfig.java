@@ -0,0 +1,49 @@
+package com.tienda.admin.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.tienda.admin.dto.ProductoDTO;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.Set;
+
+/**
+ * Serialización de las respuestas: CBOR además de JSON, y selección de campos de
+ * ProductoDTO ({@code fields=id,nombre,precio}) mediante un filtro de Jackson.
+ */
+@Configuration
+public class JacksonConfig {
+
+    public static final String FILTRO_PRODUCTO = "camposProducto";
+
+    // El filtro se asocia a ProductoDTO solo en los mappers de Spring: sin filtro
+    // registrado (failOnUnknownId=false) se escriben todos los campos
+    @JsonFilter(FILTRO_PRODUCTO)
+    private interface CamposProducto {}
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer filtroCamposProducto() {
+        return builder -> builder
+                .mixIn(ProductoDTO.class, CamposProducto.class)
+                .filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+
+    // Sustituye al conversor CBOR por defecto (que va detrás del de JSON, así que */*
+    // sigue recibiendo JSON) por uno con la misma configuración que el mapper de Boot
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /** Proveedor de filtros que deja en ProductoDTO solo los campos indicados. */
+    public static SimpleFilterProvider soloCampos(Set<String> campos) {
+        return new SimpleFilterProvider()
+                .addFilter(FILTRO_PRODUCTO, SimpleBeanPropertyFilter.filterOutAllExcept(campos));
+    }
+}
@@ -0,0 +1,58 @@
+package com.tienda.admin.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limita las exportaciones en streaming (NDJSON y CSV del catálogo) que corren a la vez.
+ * <p>
+ * Cada una lee con un cursor de servidor y retiene su conexión del pool mientras dura la
+ * descarga, que con un cliente lento puede ser de minutos. Sin límite, unas pocas descargas
+ * simultáneas dejarían sin conexiones a los inicios de sesión y a las escrituras. Las que
+ * no caben se rechazan de inmediato (503) en lugar de esperar.
+ */
+@Slf4j
+@Component
+public class LimiteExportaciones {
+
+    private final Semaphore permisos;
+    private final Counter rechazos;
+
+    public LimiteExportaciones(MeterRegistry meterRegistry,
+                               @Value("${basedatos.pool.exportaciones-simultaneas:2}") int simultaneas) {
+        this.permisos = new Semaphore(simultaneas);
+        log.info("📤 Exportaciones en streaming simultáneas: {}", simultaneas);
+
+        this.rechazos = Counter.builder("tienda.exportaciones.rechazos")
+                .description("Exportaciones rechazadas por haber ya el máximo en curso")
+                .register(meterRegistry);
+        Gauge.builder("tienda.exportaciones.activas", permisos, p -> simultaneas - p.availablePermits())
+                .description("Exportaciones en streaming en curso (cada una retiene una conexión)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserva un hueco para {@code cuerpo} y lo devuelve envuelto para liberarlo al terminar
+     * la escritura, o null si ya hay el máximo de exportaciones en curso.
+     */
+    public StreamingResponseBody limitar(StreamingResponseBody cuerpo) {
+        if (!permisos.tryAcquire()) {
+            rechazos.increment();
+            return null;
+        }
+        return salida -> {
+            try {
+                cuerpo.writeTo(salida);
+            } finally {
+                permisos.release();
+            }
+        };
+    }
+}
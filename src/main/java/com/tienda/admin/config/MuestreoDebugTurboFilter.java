@@ -0,0 +1,28 @@
+package com.tienda.admin.config;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Activa el nivel DEBUG de los loggers de la aplicación solo en las peticiones marcadas
+ * como muestreadas en el MDC. El resto de peticiones sigue con el nivel configurado,
+ * y {@code log.isDebugEnabled()} responde en consecuencia.
+ */
+public class MuestreoDebugTurboFilter extends TurboFilter {
+
+    public static final String CLAVE_MDC = "debugMuestreado";
+
+    private static final String PAQUETE_APLICACION = "com.tienda.";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level == Level.DEBUG && MDC.get(CLAVE_MDC) != null && logger.getName().startsWith(PAQUETE_APLICACION)) {
+            return FilterReply.ACCEPT;
+        }
+        return FilterReply.NEUTRAL;
+    }
+}
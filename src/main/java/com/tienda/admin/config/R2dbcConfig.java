@@ -0,0 +1,77 @@
+package com.tienda.admin.config;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import io.r2dbc.spi.Option;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import java.time.Duration;
+
+/**
+ * Conexiones R2DBC para la API de lectura reactiva (perfil "reactivo").
+ * <p>
+ * Se construyen a partir de spring.datasource.*, así que apuntan a la misma base de datos
+ * que JPA sin configurarla dos veces. La autoconfiguración R2DBC de Spring Boot está
+ * excluida: crearía su propio ConnectionFactory y un ReactiveTransactionManager que
+ * competiría con el de JPA. Por lo mismo el pool no se publica como bean: la
+ * autoconfiguración del DataSource se retira si encuentra un ConnectionFactory.
+ */
+@Configuration
+@Profile("reactivo")
+public class R2dbcConfig {
+
+    private static final String PREFIJO_JDBC = "jdbc:";
+    private static final Option<String> SSL_MODE = Option.valueOf("sslMode");
+
+    private ConnectionPool pool;
+
+    @Bean
+    public DatabaseClient databaseClient(DataSourceProperties dataSource,
+                                         @Value("${spring.datasource.hikari.data-source-properties.sslmode:disable}") String sslMode,
+                                         @Value("${reactivo.pool.tamano:10}") int tamano,
+                                         @Value("${reactivo.pool.max-espera:PT5S}") Duration maxEspera) {
+        ConnectionFactoryOptions opciones = ConnectionFactoryOptions.parse(urlR2dbc(dataSource.getUrl()))
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, dataSource.getUsername())
+                .option(ConnectionFactoryOptions.PASSWORD, dataSource.getPassword() == null ? "" : dataSource.getPassword())
+                .option(SSL_MODE, sslMode)
+                .build();
+        ConnectionFactory conexiones = ConnectionFactories.get(opciones);
+
+        // Con el driver no bloqueante unas pocas conexiones atienden a muchos lectores:
+        // ninguna queda retenida por un hilo mientras espera la red
+        pool = new ConnectionPool(ConnectionPoolConfiguration.builder(conexiones)
+                .initialSize(Math.min(2, tamano))
+                .maxSize(tamano)
+                .maxAcquireTime(maxEspera)
+                .validationQuery("SELECT 1")
+                .name("tienda-r2dbc")
+                .build());
+        return DatabaseClient.create(pool);
+    }
+
+    @PreDestroy
+    public void cerrarPool() {
+        if (pool != null) pool.dispose();
+    }
+
+    // jdbc:postgresql://host:5432/bd?x=y → r2dbc:postgresql://host:5432/bd
+    // (los parámetros JDBC no tienen el mismo nombre en R2DBC; el SSL se pasa aparte)
+    static String urlR2dbc(String urlJdbc) {
+        if (urlJdbc == null || !urlJdbc.startsWith(PREFIJO_JDBC)) {
+            throw new IllegalStateException("spring.datasource.url no es una URL JDBC: " + urlJdbc);
+        }
+        String url = urlJdbc.substring(PREFIJO_JDBC.length());
+        int parametros = url.indexOf('?');
+        return "r2dbc:" + (parametros < 0 ? url : url.substring(0, parametros));
+    }
+}
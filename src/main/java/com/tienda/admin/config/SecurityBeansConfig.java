@@ -1,14 +1,49 @@
 package com.tienda.admin.config;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
+@Slf4j
 @Configuration
 public class SecurityBeansConfig {
     
+    private static final int COSTE_MINIMO = 10;
+    private static final int COSTE_MAXIMO = 14;
+    
+    // "auto" calibra el coste contra seguridad.bcrypt.objetivo-ms; un número lo fija
+    @Value("${seguridad.bcrypt.coste:auto}")
+    private String coste;
+    
+    @Value("${seguridad.bcrypt.objetivo-ms:250}")
+    private long objetivoMs;
+    
     @Bean
     public BCryptPasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(10); // Cost factor 12
+        int strength = "auto".equalsIgnoreCase(coste) ? calibrarCoste() : Integer.parseInt(coste);
+        return new BCryptPasswordEncoder(strength);
+    }
+    
+    // Mayor coste cuyo hash tarda menos que el objetivo en esta máquina, nunca por debajo de 10.
+    // Los hashes con coste menor se re-hashean en el siguiente login correcto.
+    private int calibrarCoste() {
+        new BCryptPasswordEncoder(4).encode("calentamiento");
+        
+        int elegido = COSTE_MINIMO;
+        for (int strength = COSTE_MINIMO; strength <= COSTE_MAXIMO; strength++) {
+            BCryptPasswordEncoder prueba = new BCryptPasswordEncoder(strength);
+            long inicio = System.nanoTime();
+            prueba.encode("calibracion");
+            long ms = (System.nanoTime() - inicio) / 1_000_000;
+            
+            if (ms > objetivoMs) break;
+            elegido = strength;
+            // Cada punto de coste duplica el tiempo: no merece la pena medir el siguiente
+            if (ms * 2 > objetivoMs) break;
+        }
+        log.info("🔐 Coste BCrypt calibrado: {} (objetivo {} ms)", elegido, objetivoMs);
+        return elegido;
     }
 }
@@ -1,26 +1,41 @@
 package com.tienda.admin.config;
 
+import com.tienda.admin.controller.ProductoController;
+import com.tienda.admin.service.TokenService;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.Arrays;
 
+@Slf4j
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig implements WebMvcConfigurer {
 
+    // /api/** (salvo /api/auth/** y health) exige un token válido; false solo para desarrollo
+    @Value("${seguridad.api.requiere-token:true}")
+    private boolean requiereToken;
+
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, TokenService tokenService) throws Exception {
         http
             // 1. Deshabilitar CSRF correctamente
             .csrf(AbstractHttpConfigurer::disable)
@@ -28,10 +43,30 @@ public class SecurityConfig implements WebMvcConfigurer {
             // 2. Configurar CORS - CORREGIDO: usar el bean
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             
-            // 3. Configurar autorizaciones - ¡SIMPLIFICADO!
-            .authorizeHttpRequests(auth -> auth
-                // PERMITIR TODO TEMPORALMENTE para que funcione
-                .anyRequest().permitAll()  // ✅ CAMBIO CRÍTICO: temporalmente permitAll()
+            // 3. Sin sesión HTTP: la identidad viaja en el token firmado
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService), UsernamePasswordAuthenticationFilter.class)
+            // Sin token válido: 401 con el mismo cuerpo JSON que el resto de errores de la API
+            .exceptionHandling(ex -> ex.authenticationEntryPoint((request, response, e) -> {
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+                response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+                response.getWriter().write("{\"success\":false,\"message\":\"Token inválido o expirado\"}");
+            }))
+            
+            // 4. Configurar autorizaciones: la API exige token; el frontend estático es público
+            .authorizeHttpRequests(auth -> {
+                // Los redespachos ASYNC (SSE, streaming) y ERROR ya se autorizaron en la petición original
+                auth.dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll();
+                // Actuator siempre con token (también con requiere-token=false); las sondas de
+                // salud quedan abiertas para el orquestador
+                auth.requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
+                    .requestMatchers("/actuator/**").authenticated();
+                if (requiereToken) {
+                    auth.requestMatchers("/api/auth/**", "/api/health").permitAll()
+                        .requestMatchers("/api/**").authenticated();
+                }
+                auth.anyRequest().permitAll();
                 
                 /*
                 // Cuando funcione, cambiar a esto:
@@ -55,9 +90,9 @@ public class SecurityConfig implements WebMvcConfigurer {
                 ).permitAll()
                 .anyRequest().authenticated()
                 */
-            )
+            })
             
-            // 4. Headers (mantener si usas H2)
+            // 5. Headers (mantener si usas H2)
             .headers(headers -> headers.frameOptions(frame -> frame.sameOrigin()));
         
         return http.build();
@@ -90,7 +125,10 @@ public class SecurityConfig implements WebMvcConfigurer {
         // ✅ CORREGIDO: Headers expuestos
         configuration.setExposedHeaders(Arrays.asList(
             "Authorization",
-            "Content-Disposition"
+            "Content-Disposition",
+            "Link",
+            ProductoController.CABECERA_VERSION,
+            CorrelacionFilter.CABECERA
         ));
         
         // ✅ CORREGIDO: Cambiar a true para permitir cookies/credentials
@@ -107,10 +145,8 @@ public class SecurityConfig implements WebMvcConfigurer {
     // ✅ CORREGIDO: Método de recursos estáticos
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        // 1. Archivos subidos
+        // 1. Archivos subidos: los sirve ImagenesController (ETag, rangos y caché inmutable)
         String uploadPath = Paths.get("uploads").toAbsolutePath().toString();
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + uploadPath + "/");
         
         // 2. Archivos estáticos de Spring Boot - CORREGIDO
         // Spring Boot ya maneja esto automáticamente, pero lo dejamos por si acaso
@@ -131,8 +167,7 @@ public class SecurityConfig implements WebMvcConfigurer {
                     "classpath:/static/assets/"
                 );
         
-        System.out.println("✅ Configuración de recursos estáticos completada");
-        System.out.println("📁 Ruta uploads: " + uploadPath);
+        log.info("📁 Recursos estáticos configurados; uploads en {}", uploadPath);
     }
     
     // ❌ ELIMINAR este método (no es necesario y puede causar problemas)
@@ -0,0 +1,57 @@
+package com.tienda.admin.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Dimensiona el pool de Hikari según la capacidad del servidor PostgreSQL (2 × núcleos de la
+ * base de datos + 1), sin pasar de la concurrencia esperada contra ella. Los núcleos que
+ * cuentan son los de la base de datos, no los de esta instancia: con
+ * {@code basedatos.pool.nucleos-bd} sin configurar se usa la concurrencia esperada.
+ * Un pool mayor no aumenta el rendimiento: solo añade conexiones que esperan su turno
+ * en PostgreSQL.
+ * <p>
+ * El pool es de tamaño fijo (minimumIdle = maximumPoolSize) para no abrir conexiones
+ * TLS nuevas en mitad de un pico. Sustituye a spring.datasource.hikari.maximum-pool-size.
+ * Las exportaciones en streaming, que retienen su conexión toda la descarga, se limitan
+ * aparte ({@link LimiteExportaciones}) para que no agoten el pool.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "basedatos.pool.tamano-automatico", havingValue = "true")
+public class TamanoPoolConexiones implements BeanPostProcessor {
+
+    private final int nucleosBaseDatos;
+    private final int concurrenciaEsperada;
+    private final int minimo;
+
+    public TamanoPoolConexiones(@Value("${basedatos.pool.nucleos-bd:0}") int nucleosBaseDatos,
+                                @Value("${basedatos.pool.concurrencia-esperada:20}") int concurrenciaEsperada,
+                                @Value("${basedatos.pool.minimo:4}") int minimo) {
+        this.nucleosBaseDatos = nucleosBaseDatos;
+        this.concurrenciaEsperada = concurrenciaEsperada;
+        this.minimo = minimo;
+    }
+
+    // El pool de Hikari se crea con la primera conexión, así que aún se puede redimensionar aquí
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource hikari) {
+            int tamano = calcular(nucleosBaseDatos, concurrenciaEsperada, minimo);
+            hikari.setMaximumPoolSize(tamano);
+            hikari.setMinimumIdle(tamano);
+            log.info("🗄️ Pool de conexiones: {} conexiones ({} núcleos en la base de datos, concurrencia esperada {})",
+                    tamano, nucleosBaseDatos > 0 ? nucleosBaseDatos : "?", concurrenciaEsperada);
+        }
+        return bean;
+    }
+
+    static int calcular(int nucleosBaseDatos, int concurrenciaEsperada, int minimo) {
+        int porCapacidad = nucleosBaseDatos > 0 ? nucleosBaseDatos * 2 + 1 : concurrenciaEsperada;
+        return Math.max(minimo, Math.min(porCapacidad, concurrenciaEsperada));
+    }
+}
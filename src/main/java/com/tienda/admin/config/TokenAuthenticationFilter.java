@@ -0,0 +1,72 @@
+package com.tienda.admin.config;
+
+import com.tienda.admin.service.TokenService;
+import com.tienda.admin.service.TokenService.TokenAdmin;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Autentica las peticiones a /api/** y /actuator/** a partir del token Bearer. Solo
+ * verifica la firma y la expiración del token: no consulta AdministradorRepository.
+ * <p>
+ * El stream SSE de cambios acepta además la cookie {@link #COOKIE_EVENTOS} (EventSource no
+ * puede enviar cabeceras), con un token de alcance {@code eventos} que no sirve para nada más.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+    
+    public static final String RUTA_EVENTOS = "/api/productos/eventos";
+    public static final String COOKIE_EVENTOS = "tienda_eventos";
+    
+    private static final String PREFIJO_BEARER = "Bearer ";
+    private static final List<SimpleGrantedAuthority> AUTORIDADES = List.of(new SimpleGrantedAuthority("ROLE_ADMIN"));
+    
+    private final TokenService tokenService;
+    
+    public TokenAuthenticationFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !uri.startsWith("/api/") && !uri.startsWith("/actuator/");
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String cabecera = request.getHeader(HttpHeaders.AUTHORIZATION);
+        
+        TokenAdmin token = null;
+        if (cabecera != null && cabecera.startsWith(PREFIJO_BEARER)) {
+            token = tokenService.verificar(cabecera.substring(PREFIJO_BEARER.length()));
+        } else if (RUTA_EVENTOS.equals(request.getRequestURI())) {
+            token = tokenService.verificar(cookie(request, COOKIE_EVENTOS), TokenService.ALCANCE_EVENTOS);
+        }
+        if (token != null) {
+            var autenticacion = new UsernamePasswordAuthenticationToken(token, null, AUTORIDADES);
+            SecurityContextHolder.getContext().setAuthentication(autenticacion);
+        }
+        
+        chain.doFilter(request, response);
+    }
+    
+    private static String cookie(HttpServletRequest request, String nombre) {
+        if (request.getCookies() == null) return null;
+        for (Cookie cookie : request.getCookies()) {
+            if (nombre.equals(cookie.getName())) return cookie.getValue();
+        }
+        return null;
+    }
+}
@@ -1,19 +1,26 @@
 package com.tienda.admin.controller;
 
+import com.tienda.admin.config.TokenAuthenticationFilter;
 import com.tienda.admin.dto.LoginRequest;
 import com.tienda.admin.dto.LoginResponse;
 import com.tienda.admin.model.Administrador;
 import com.tienda.admin.service.AuthService;
+import com.tienda.admin.service.TokenService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+@Slf4j
 @RestController
 @RequestMapping("/api/auth")  // ✅ CAMBIADO: Solo /api/auth
 @RequiredArgsConstructor
@@ -21,6 +28,7 @@ import java.util.Map;
 public class AuthController {
     
     private final AuthService authService;
+    private final TokenService tokenService;
     
     // ✅ Ruta única: /api/auth/test
     @GetMapping("/test")
@@ -38,12 +46,10 @@ public class AuthController {
     // @GetMapping("/test")  // ❌ QUITAR ESTE
     
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) {
-        System.out.println("=== INTENTO DE LOGIN ===");
-        System.out.println("Usuario: " + request.getUsername());
-        
+    public ResponseEntity<?> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
         try {
-            var result = authService.authenticate(request.getUsername(), request.getPassword());
+            var result = authService.authenticate(
+                    request.getUsername(), request.getPassword(), httpRequest.getRemoteAddr());
             
             if (result.isSuccess()) {
                 Administrador admin = result.getAdmin();
@@ -60,18 +66,22 @@ public class AuthController {
                 loginResponse.setToken(result.getToken());
                 loginResponse.setAdmin(adminInfo);
                 
-                System.out.println("✅ Login exitoso para: " + admin.getUsername());
                 return ResponseEntity.ok(loginResponse);
                 
+            } else if (result.isBusy()) {
+                return ResponseEntity.status(429)
+                        .header("Retry-After", "1")
+                        .body(Map.of(
+                            "success", false,
+                            "message", result.getMessage()
+                        ));
             } else if (result.isLocked()) {
-                System.out.println("⛔ Cuenta bloqueada: " + request.getUsername());
                 return ResponseEntity.status(423).body(Map.of(
                     "success", false,
                     "message", result.getMessage(),
                     "locked", true
                 ));
             } else {
-                System.out.println("❌ Credenciales incorrectas: " + request.getUsername());
                 return ResponseEntity.status(401).body(Map.of(
                     "success", false,
                     "message", result.getMessage()
@@ -79,7 +89,7 @@ public class AuthController {
             }
             
         } catch (Exception e) {
-            System.err.println("🔥 Error en login: " + e.getMessage());
+            log.error("🔥 Error en login: {}", e.getMessage(), e);
             return ResponseEntity.status(500).body(Map.of(
                 "success", false,
                 "message", "Error interno del servidor"
@@ -87,6 +97,60 @@ public class AuthController {
         }
     }
     
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                    HttpServletRequest httpRequest) {
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "message", "Falta el token"
+            ));
+        }
+        
+        boolean revocado = authService.logout(authorization.substring("Bearer ".length()));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, cookieEventos("", Duration.ZERO, httpRequest).toString())
+                .body(Map.of(
+                    "success", revocado,
+                    "message", revocado ? "Sesión cerrada" : "Token inválido o expirado"
+                ));
+    }
+    
+    /**
+     * Cookie para el stream SSE de cambios (/api/productos/eventos): EventSource no puede
+     * enviar la cabecera Authorization. Lleva un token que solo vale para ese stream, con el
+     * jti y la expiración de la sesión, y solo se envía a esa ruta.
+     */
+    @PostMapping("/eventos")
+    public ResponseEntity<?> cookieEventos(@RequestHeader(value = "Authorization", required = false) String authorization,
+                                           HttpServletRequest httpRequest) {
+        TokenService.TokenAdmin sesion = authorization != null && authorization.startsWith("Bearer ")
+                ? tokenService.verificar(authorization.substring("Bearer ".length()))
+                : null;
+        if (sesion == null) {
+            return ResponseEntity.status(401).body(Map.of(
+                "success", false,
+                "message", "Token inválido o expirado"
+            ));
+        }
+        
+        String token = tokenService.emitirConAlcance(sesion, TokenService.ALCANCE_EVENTOS);
+        Duration vigencia = Duration.ofSeconds(sesion.expiracion() - System.currentTimeMillis() / 1000);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.SET_COOKIE, cookieEventos(token, vigencia, httpRequest).toString())
+                .body(Map.of("success", true));
+    }
+    
+    private static ResponseCookie cookieEventos(String valor, Duration vigencia, HttpServletRequest httpRequest) {
+        return ResponseCookie.from(TokenAuthenticationFilter.COOKIE_EVENTOS, valor)
+                .httpOnly(true)
+                .secure(httpRequest.isSecure())
+                .sameSite("Strict")
+                .path(TokenAuthenticationFilter.RUTA_EVENTOS)
+                .maxAge(vigencia)
+                .build();
+    }
+    
     // ✅ ELIMINADO: El método /health (va en ApiController)
     // @GetMapping("/health")  // ❌ QUITAR ESTE
     
@@ -0,0 +1,56 @@
+package com.tienda.admin.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.tienda.admin.service.EntregaImagenesService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+public class CacheController {
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private EntregaImagenesService entregaImagenes;
+    
+    @GetMapping("/api/debug/cache")
+    public ResponseEntity<?> estadisticasCache() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", new Date());
+        
+        Map<String, Object> caches = new HashMap<>();
+        for (String nombre : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(nombre);
+            if (cache instanceof CaffeineCache caffeineCache) {
+                caches.put(nombre, estadisticas(caffeineCache.getNativeCache()));
+            }
+        }
+        // Imágenes pequeñas servidas desde memoria en /uploads/**
+        caches.put("imagenesCalientes", estadisticas(entregaImagenes.getCacheCalientes()));
+        response.put("caches", caches);
+        
+        return ResponseEntity.ok(response);
+    }
+    
+    private Map<String, Object> estadisticas(com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+        CacheStats stats = nativeCache.stats();
+        
+        Map<String, Object> info = new HashMap<>();
+        info.put("entries", nativeCache.estimatedSize());
+        info.put("hits", stats.hitCount());
+        info.put("misses", stats.missCount());
+        info.put("hit_rate", stats.hitRate());
+        info.put("evictions", stats.evictionCount());
+        return info;
+    }
+}
@@ -1,5 +1,6 @@
 package com.tienda.admin.controller;
 
+import com.tienda.admin.service.RegistroUltimoLogin;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -7,8 +8,10 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.*;
 
 @RestController
@@ -17,6 +20,9 @@ public class DatabaseTestController {
     @Autowired
     private DataSource dataSource;
     
+    @Autowired
+    private RegistroUltimoLogin registroUltimoLogin;
+    
     @GetMapping("/api/debug/db")
     public ResponseEntity<?> debugDatabase() {
         Map<String, Object> response = new HashMap<>();
@@ -42,9 +48,8 @@ public class DatabaseTestController {
             // Verificar tabla 'administradores'
             if (tables.contains("administradores")) {
                 response.put("administradores_table", "EXISTS");
-                try {
-                    var stmt = conn.createStatement();
-                    var countRs = stmt.executeQuery("SELECT COUNT(*) as count FROM administradores");
+                try (Statement stmt = conn.createStatement();
+                     ResultSet countRs = stmt.executeQuery("SELECT COUNT(*) as count FROM administradores")) {
                     if (countRs.next()) {
                         response.put("administradores_count", countRs.getInt("count"));
                     }
@@ -53,7 +58,7 @@ public class DatabaseTestController {
                 }
             } else {
                 response.put("administradores_table", "NOT_FOUND");
-                response.put("suggestion", "Usa spring.jpa.hibernate.ddl-auto=update para crear tablas automáticamente");
+                response.put("suggestion", "Revisa las migraciones de Flyway (tabla flyway_schema_history)");
             }
             
             // Verificar otras tablas importantes
@@ -127,10 +132,10 @@ public class DatabaseTestController {
         Map<String, Object> response = new HashMap<>();
         response.put("timestamp", new Date());
         
-        try (Connection conn = dataSource.getConnection()) {
-            // Query simple para verificar conexión
-            var stmt = conn.createStatement();
-            var rs = stmt.executeQuery("SELECT 1 as test, current_timestamp as server_time");
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             // Query simple para verificar conexión
+             ResultSet rs = stmt.executeQuery("SELECT 1 as test, current_timestamp as server_time")) {
             
             if (rs.next()) {
                 response.put("status", "OK");
@@ -150,19 +155,21 @@ public class DatabaseTestController {
         return ResponseEntity.ok(response);
     }
     
+    @GetMapping("/api/debug/ultimo-login")
+    public ResponseEntity<?> metricasUltimoLogin() {
+        Map<String, Object> response = new HashMap<>(registroUltimoLogin.metricas());
+        response.put("timestamp", new Date());
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/api/debug/create-test-admin")
     public ResponseEntity<?> createTestAdmin() {
         Map<String, Object> response = new HashMap<>();
         response.put("timestamp", new Date());
         
         try (Connection conn = dataSource.getConnection()) {
-            // Verificar si la tabla existe
-            var checkStmt = conn.createStatement();
-            var rs = checkStmt.executeQuery(
-                "SELECT EXISTS (SELECT FROM information_schema.tables WHERE table_name = 'administradores')"
-            );
-            
-            if (rs.next() && rs.getBoolean(1)) {
+            // Verificar si la tabla existe (to_regclass consulta el catálogo, no information_schema)
+            if (existeTabla(conn, "administradores")) {
                 // Tabla existe, intentar insertar admin de prueba
                 String insertSQL = """
                     INSERT INTO administradores (username, password, nombre, email, activo, created_at, updated_at) 
@@ -171,22 +178,22 @@ public class DatabaseTestController {
                     RETURNING id, username
                     """;
                 
-                var insertStmt = conn.createStatement();
-                var insertRs = insertStmt.executeQuery(insertSQL);
-                
-                if (insertRs.next()) {
-                    response.put("status", "CREATED");
-                    response.put("admin_id", insertRs.getLong("id"));
-                    response.put("username", insertRs.getString("username"));
-                    response.put("message", "Admin de prueba creado: admin / admin123");
-                } else {
-                    response.put("status", "EXISTS");
-                    response.put("message", "El admin 'admin' ya existe");
+                try (Statement insertStmt = conn.createStatement();
+                     ResultSet insertRs = insertStmt.executeQuery(insertSQL)) {
+                    if (insertRs.next()) {
+                        response.put("status", "CREATED");
+                        response.put("admin_id", insertRs.getLong("id"));
+                        response.put("username", insertRs.getString("username"));
+                        response.put("message", "Admin de prueba creado: admin / admin123");
+                    } else {
+                        response.put("status", "EXISTS");
+                        response.put("message", "El admin 'admin' ya existe");
+                    }
                 }
             } else {
                 response.put("status", "NO_TABLE");
                 response.put("message", "La tabla 'administradores' no existe");
-                response.put("suggestion", "Cambia spring.jpa.hibernate.ddl-auto a 'update' o 'create'");
+                response.put("suggestion", "Revisa las migraciones de Flyway (tabla flyway_schema_history)");
             }
             
         } catch (SQLException e) {
@@ -202,8 +209,7 @@ public class DatabaseTestController {
     
     private List<String> getTableList(DatabaseMetaData metaData) {
         List<String> tables = new ArrayList<>();
-        try {
-            ResultSet rs = metaData.getTables(null, null, "%", new String[]{"TABLE"});
+        try (ResultSet rs = metaData.getTables(null, null, "%", new String[]{"TABLE"})) {
             while (rs.next()) {
                 tables.add(rs.getString("TABLE_NAME"));
             }
@@ -213,6 +219,15 @@ public class DatabaseTestController {
         return tables;
     }
     
+    private boolean existeTabla(Connection conn, String tabla) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            ps.setString(1, tabla);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+    
     private void checkImportantTables(List<String> tables, Map<String, Object> response) {
         List<String> importantTables = Arrays.asList("administradores", "productos", "usuarios", "categorias");
         Map<String, Boolean> tableStatus = new HashMap<>();
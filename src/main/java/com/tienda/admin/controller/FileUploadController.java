@@ -1,12 +1,25 @@
 package com.tienda.admin.controller;
 
+import com.tienda.admin.service.AlmacenImagenes.ImagenDemasiadoGrandeException;
+import com.tienda.admin.service.AlmacenImagenes.ImagenGuardada;
 import com.tienda.admin.service.FileUploadService;
+import com.tienda.admin.service.FileUploadService.ResultadoSubida;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -14,6 +27,9 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class FileUploadController {
     
+    // Fichero de 5MB más las cabeceras y separadores del multipart
+    private static final long TAMANO_MAXIMO_PETICION = FileUploadService.TAMANO_MAXIMO + 64 * 1024;
+    
     @Autowired
     private FileUploadService fileUploadService;
     
@@ -39,6 +55,10 @@ public class FileUploadController {
             
             return ResponseEntity.ok(respuesta);
             
+        } catch (ImagenDemasiadoGrandeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(
+                Map.of("success", false, "message", e.getMessage())
+            );
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(
                 Map.of("success", false, "message", e.getMessage())
@@ -50,6 +70,105 @@ public class FileUploadController {
         }
     }
     
+    /**
+     * Varias imágenes en una sola petición (campo "files" repetido). Devuelve un resultado
+     * por archivo, en el mismo orden; los fallos de uno no deshacen los demás.
+     */
+    @PostMapping("/imagenes")
+    public ResponseEntity<?> subirImagenes(@RequestParam("files") List<MultipartFile> archivos) {
+        try {
+            List<ResultadoSubida> resultados = fileUploadService.guardarImagenes(archivos);
+            long subidas = resultados.stream().filter(ResultadoSubida::success).count();
+            
+            Map<String, Object> respuesta = new HashMap<>();
+            respuesta.put("success", subidas == resultados.size());
+            respuesta.put("total", resultados.size());
+            respuesta.put("subidas", subidas);
+            respuesta.put("fallidas", resultados.size() - subidas);
+            respuesta.put("resultados", resultados);
+            
+            return ResponseEntity.ok(respuesta);
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                Map.of("success", false, "message", e.getMessage())
+            );
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(
+                Map.of("success", false, "message", "Error al subir imágenes: " + e.getMessage())
+            );
+        }
+    }
+    
+    /**
+     * Subida multipart en streaming: el cuerpo se lee parte a parte directamente del socket,
+     * sin que Spring lo guarde antes en memoria o en un temporal. Un fichero que no es
+     * imagen o que supera el límite se rechaza en cuanto se detecta.
+     */
+    @PostMapping("/imagen/stream")
+    public ResponseEntity<?> subirImagenStream(HttpServletRequest request) {
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            return ResponseEntity.badRequest().body(
+                Map.of("success", false, "message", "Se esperaba multipart/form-data")
+            );
+        }
+        
+        // Content-Length declarado: ni se empieza a leer si ya se sabe que no cabe
+        if (request.getContentLengthLong() > TAMANO_MAXIMO_PETICION) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(
+                Map.of("success", false, "message", "La imagen es demasiado grande. Máximo 5MB")
+            );
+        }
+        
+        try {
+            JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+            upload.setSizeMax(TAMANO_MAXIMO_PETICION);
+            
+            FileItemInputIterator partes = upload.getItemIterator(request);
+            while (partes.hasNext()) {
+                FileItemInput parte = partes.next();
+                if (parte.isFormField() || !"file".equals(parte.getFieldName())) {
+                    continue;
+                }
+                
+                ImagenGuardada guardada;
+                try (InputStream contenido = parte.getInputStream()) {
+                    guardada = fileUploadService.guardarImagen(contenido);
+                }
+                
+                Map<String, Object> respuesta = new HashMap<>();
+                respuesta.put("success", true);
+                respuesta.put("message", "Imagen subida correctamente");
+                respuesta.put("ruta", guardada.ruta());
+                respuesta.put("url", "http://localhost:8080" + guardada.ruta());
+                respuesta.put("nombre", parte.getName());
+                respuesta.put("tamaño", guardada.tamano());
+                respuesta.put("tipo", "image/" + guardada.tipo().name().toLowerCase());
+                
+                return ResponseEntity.ok(respuesta);
+            }
+            
+            return ResponseEntity.badRequest().body("No se envió ningún archivo");
+            
+        } catch (ImagenDemasiadoGrandeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(
+                Map.of("success", false, "message", e.getMessage())
+            );
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(
+                Map.of("success", false, "message", e.getMessage())
+            );
+        } catch (FileUploadSizeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(
+                Map.of("success", false, "message", "La imagen es demasiado grande. Máximo 5MB")
+            );
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(
+                Map.of("success", false, "message", "Error al subir imagen: " + e.getMessage())
+            );
+        }
+    }
+    
     @DeleteMapping("/imagen")
     public ResponseEntity<?> eliminarImagen(@RequestParam String ruta) {
         try {
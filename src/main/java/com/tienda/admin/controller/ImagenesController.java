@@ -0,0 +1,151 @@
+package com.tienda.admin.controller;
+
+import com.tienda.admin.service.EntregaImagenesService;
+import com.tienda.admin.service.EntregaImagenesService.Archivo;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Entrega de /uploads/** con ETag, peticiones condicionales (304), rangos (206)
+ * y caché inmutable en el navegador.
+ */
+@RestController
+public class ImagenesController {
+
+    private static final String PREFIJO = "/uploads/";
+    private static final String CACHE_INMUTABLE = "public, max-age=31536000, immutable";
+
+    // Atributos de Tomcat para enviar el fichero con sendfile (copia cero en el kernel)
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FICHERO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    @Autowired
+    private EntregaImagenesService entregaImagenes;
+
+    @RequestMapping(value = "/uploads/**", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void servirImagen(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String uri = request.getRequestURI().substring(request.getContextPath().length());
+        String rutaRelativa = UriUtils.decode(uri.substring(PREFIJO.length()), StandardCharsets.UTF_8);
+
+        Archivo archivo = entregaImagenes.resolver(rutaRelativa);
+        if (archivo == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ETAG, archivo.etag());
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, archivo.modificado());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_INMUTABLE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (noModificado(request, archivo)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        MediaType tipo = MediaTypeFactory.getMediaType(archivo.ruta().getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM);
+        response.setContentType(tipo.toString());
+
+        long inicio = 0;
+        long fin = archivo.tamano() - 1;
+
+        long[] rango = rangoSolicitado(request, archivo);
+        if (rango != null) {
+            if (rango.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + archivo.tamano());
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            inicio = rango[0];
+            fin = rango[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + archivo.tamano());
+        }
+
+        long longitud = fin - inicio + 1;
+        response.setContentLengthLong(longitud);
+        if (RequestMethod.HEAD.name().equals(request.getMethod()) || longitud == 0) {
+            return;
+        }
+
+        // Ficheros grandes: Tomcat los envía con sendfile sin pasar por la JVM
+        if (!entregaImagenes.esCacheable(archivo) && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            request.setAttribute(SENDFILE_FICHERO, archivo.ruta().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, fin + 1);
+            return;
+        }
+
+        entregaImagenes.escribir(archivo, inicio, fin, response.getOutputStream());
+    }
+
+    private boolean noModificado(HttpServletRequest request, Archivo archivo) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String etag : ifNoneMatch.split(",")) {
+                String valor = etag.trim();
+                if (valor.startsWith("W/")) valor = valor.substring(2);
+                if (valor.equals("*") || valor.equals(archivo.etag())) return true;
+            }
+            return false;
+        }
+
+        long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        // Las fechas HTTP tienen resolución de segundos
+        return ifModifiedSince >= 0 && archivo.modificado() / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Rango de un único intervalo "bytes=a-b", "bytes=a-" o "bytes=-n".
+     * Devuelve null para servir el fichero completo y un array vacío si no es satisfacible.
+     */
+    private long[] rangoSolicitado(HttpServletRequest request, Archivo archivo) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range == null || !range.startsWith("bytes=") || range.contains(",")) return null;
+
+        // If-Range con otro ETag: el cliente tiene una versión distinta, va el fichero entero
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.trim().equals(archivo.etag())) return null;
+
+        String especificacion = range.substring("bytes=".length()).trim();
+        int guion = especificacion.indexOf('-');
+        if (guion < 0) return null;
+
+        long tamano = archivo.tamano();
+        try {
+            String desde = especificacion.substring(0, guion).trim();
+            String hasta = especificacion.substring(guion + 1).trim();
+            long inicio;
+            long fin;
+
+            if (desde.isEmpty()) {
+                long sufijo = Long.parseLong(hasta);
+                if (sufijo <= 0) return new long[0];
+                inicio = Math.max(0, tamano - sufijo);
+                fin = tamano - 1;
+            } else {
+                inicio = Long.parseLong(desde);
+                fin = hasta.isEmpty() ? tamano - 1 : Math.min(Long.parseLong(hasta), tamano - 1);
+            }
+
+            if (inicio >= tamano || inicio > fin) return new long[0];
+            return new long[]{inicio, fin};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
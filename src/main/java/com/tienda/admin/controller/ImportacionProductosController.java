@@ -0,0 +1,79 @@
+package com.tienda.admin.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tienda.admin.config.LimiteExportaciones;
+import com.tienda.admin.service.ImportacionProductosService;
+import com.tienda.admin.service.ImportacionProductosService.ResultadoImportacion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.InputStream;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/productos")
+@CrossOrigin(origins = "*")
+public class ImportacionProductosController {
+    
+    private static final String TEXT_CSV = "text/csv";
+    
+    @Autowired
+    private ImportacionProductosService importacionService;
+    
+    @Autowired
+    private LimiteExportaciones limiteExportaciones;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // El cuerpo se lee en streaming: CSV con cabecera o un ProductoDTO JSON por línea
+    @PostMapping(value = "/importar", consumes = {TEXT_CSV, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> importarProductos(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream cuerpo) {
+        try {
+            ResultadoImportacion resultado = contentType.startsWith(TEXT_CSV)
+                    ? importacionService.importarCsv(cuerpo)
+                    : importacionService.importarNdjson(cuerpo);
+            return ResponseEntity.ok(resultado);
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(
+                Map.of("success", false, "message", "Error en la importación: " + e.getMessage())
+            );
+        }
+    }
+    
+    // Cada exportación retiene una conexión del pool mientras dura la descarga. El tipo de
+    // retorno debe ser ResponseEntity<StreamingResponseBody> para que Spring la escriba en
+    // streaming; los errores van también como cuerpo en streaming
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarProductos(@RequestParam(defaultValue = "csv") String formato) {
+        boolean csv = "csv".equalsIgnoreCase(formato);
+        if (!csv && !"ndjson".equalsIgnoreCase(formato)) {
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(json(Map.of("success", false, "message", "Formato no soportado. Use: csv, ndjson")));
+        }
+        
+        StreamingResponseBody cuerpo = limiteExportaciones.limitar(
+                csv ? importacionService::exportarCsv : importacionService::exportarNdjson);
+        if (cuerpo == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(json(Map.of("success", false, "message", "Demasiadas exportaciones en curso, reintente en unos segundos")));
+        }
+        return ResponseEntity.ok()
+                .contentType(csv ? MediaType.parseMediaType(TEXT_CSV + ";charset=UTF-8") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"productos." + (csv ? "csv" : "ndjson") + "\"")
+                .body(cuerpo);
+    }
+    
+    private StreamingResponseBody json(Object cuerpo) {
+        return salida -> objectMapper.writeValue(salida, cuerpo);
+    }
+}
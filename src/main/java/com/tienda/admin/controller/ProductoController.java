@@ -1,25 +1,139 @@
 package com.tienda.admin.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.tienda.admin.config.JacksonConfig;
+import com.tienda.admin.config.LimiteExportaciones;
+import com.tienda.admin.dto.PaginaProductosDTO;
 import com.tienda.admin.dto.ProductoDTO;
+import com.tienda.admin.service.DifusionCambiosProductos;
 import com.tienda.admin.service.ProductoService;
+import com.tienda.admin.service.VersionCatalogo;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/productos")
 @CrossOrigin(origins = "*")
 public class ProductoController {
     
+    // Valor de "since" para /cambios que corresponde a la lista recibida
+    public static final String CABECERA_VERSION = "X-Catalogo-Version";
+    
     @Autowired
     private ProductoService productoService;
     
+    @Autowired
+    private VersionCatalogo versionCatalogo;
+    
+    @Autowired
+    private DifusionCambiosProductos difusionCambios;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private LimiteExportaciones limiteExportaciones;
+    
+    // Nombres válidos para fields=, tal como salen en el JSON de ProductoDTO
+    private Set<String> camposProducto;
+    
+    @PostConstruct
+    public void init() {
+        camposProducto = objectMapper.getSerializationConfig()
+                .introspect(objectMapper.constructType(ProductoDTO.class))
+                .findProperties().stream()
+                .map(BeanPropertyDefinition::getName)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+    
+    // Modo streaming: una línea JSON por producto, memoria constante
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> obtenerProductosNdjson(
+            @RequestParam(required = false) String fields,
+            ServletWebRequest peticion) {
+        
+        Set<String> campos;
+        try {
+            campos = camposSolicitados(fields);
+        } catch (IllegalArgumentException e) {
+            StreamingResponseBody error = salida -> objectMapper.writeValue(salida,
+                    Map.of("success", false, "message", e.getMessage()));
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(error);
+        }
+        if (noModificado(peticion, representacion("ndjson", campos), true)) {
+            return null;
+        }
+        // Retiene una conexión del pool mientras dura la descarga
+        StreamingResponseBody cuerpo = limiteExportaciones.limitar(
+                salida -> productoService.escribirProductosNdjson(salida, campos));
+        if (cuerpo == null) {
+            StreamingResponseBody ocupado = salida -> objectMapper.writeValue(salida,
+                    Map.of("success", false, "message", "Demasiadas exportaciones en curso, reintente en unos segundos"));
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(ocupado);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(cuerpo);
+    }
+    
     @GetMapping
-    public ResponseEntity<List<ProductoDTO>> obtenerTodosLosProductos() {
-        List<ProductoDTO> productos = productoService.obtenerTodosLosProductos();
-        return ResponseEntity.ok(productos);
+    public ResponseEntity<?> obtenerTodosLosProductos(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String fields,
+            ServletWebRequest peticion) {
+        
+        boolean paginado = limit != null || after != null;
+        try {
+            Set<String> campos = camposSolicitados(fields);
+            if (noModificado(peticion, representacion(paginado ? "pagina" : "lista", campos), true)) {
+                return null;
+            }
+            
+            // Sin parámetros de paginación se mantiene la respuesta clásica (lista completa)
+            if (!paginado) {
+                List<ProductoDTO> productos = productoService.obtenerTodosLosProductos();
+                return ResponseEntity.ok(conCampos(productos, campos));
+            }
+            
+            PaginaProductosDTO pagina = productoService.obtenerPaginaProductos(after, limit);
+            ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+            
+            if (pagina.getSiguienteCursor() != null) {
+                String siguiente = ServletUriComponentsBuilder.fromCurrentRequest()
+                        .replaceQueryParam("limit", pagina.getLimite())
+                        .replaceQueryParam("after", pagina.getSiguienteCursor())
+                        .build()
+                        .toUriString();
+                respuesta.header(HttpHeaders.LINK, "<" + siguiente + ">; rel=\"next\"");
+            }
+            return respuesta.body(conCampos(pagina, campos));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
+        }
     }
     
     @GetMapping("/{id}")
@@ -70,22 +184,51 @@ public class ProductoController {
         }
     }
     
+    // Sincronización incremental: lo cambiado desde la "version" de la respuesta anterior
+    @GetMapping("/cambios")
+    public ResponseEntity<?> obtenerCambios(@RequestParam long since) {
+        try {
+            return ResponseEntity.ok(productoService.obtenerCambios(since));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.GONE).body(Map.of("success", false, "message", e.getMessage()));
+        }
+    }
+    
+    // Cambios en tiempo real (Server-Sent Events) para los dashboards abiertos
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> suscribirEventos() {
+        SseEmitter emitter = difusionCambios.suscribir();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no") // nginx: no retener los eventos en su buffer
+                .body(emitter);
+    }
+    
     @GetMapping("/buscar")
-    public ResponseEntity<List<ProductoDTO>> buscarProductos(
+    public ResponseEntity<?> buscarProductos(
             @RequestParam(required = false) String nombre,
             @RequestParam(required = false) String categoria,
-            @RequestParam(required = false) Boolean ofertaEspecial) {
+            @RequestParam(required = false) Boolean ofertaEspecial,
+            @RequestParam(required = false) String fields) {
         
         try {
+            Set<String> campos = camposSolicitados(fields);
             List<ProductoDTO> productos = productoService.buscarProductos(nombre, categoria, ofertaEspecial);
-            return ResponseEntity.ok(productos);
+            return ResponseEntity.ok(conCampos(productos, campos));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError().build();
         }
     }
     
     @GetMapping("/categorias")
-    public ResponseEntity<List<String>> obtenerCategorias() {
+    public ResponseEntity<List<String>> obtenerCategorias(ServletWebRequest peticion) {
+        if (noModificado(peticion, "categorias", false)) {
+            return null;
+        }
         try {
             List<String> categorias = productoService.obtenerCategorias();
             return ResponseEntity.ok(categorias);
@@ -93,6 +236,55 @@ public class ProductoController {
             return ResponseEntity.internalServerError().build();
         }
     }
+    
+    /**
+     * Responde 304 si el cliente ya tiene la versión actual del catálogo (If-None-Match o
+     * If-Modified-Since), sin consultar ni serializar nada. En otro caso deja puestos ETag y
+     * Last-Modified. La versión se lee antes que los datos: el contenido enviado nunca es
+     * más antiguo que su ETag.
+     */
+    private boolean noModificado(ServletWebRequest peticion, String representacion, boolean conVersion) {
+        VersionCatalogo.Version version = versionCatalogo.actual();
+        HttpServletResponse response = peticion.getResponse();
+        if (conVersion) {
+            response.setHeader(CABECERA_VERSION, String.valueOf(productoService.versionSincronizacion(version)));
+        }
+        // no-cache: el navegador guarda la respuesta pero revalida en cada fetch
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return peticion.checkNotModified(versionCatalogo.etag(version, representacion), version.modificado());
+    }
+    
+    /** Campos pedidos en fields=id,nombre,precio, o null si se quieren todos. */
+    private Set<String> camposSolicitados(String fields) {
+        if (fields == null || fields.isBlank()) return null;
+        
+        Set<String> campos = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(campo -> !campo.isEmpty())
+                .collect(Collectors.toCollection(TreeSet::new));
+        for (String campo : campos) {
+            if (!camposProducto.contains(campo)) {
+                throw new IllegalArgumentException("Campo desconocido en fields: " + campo
+                        + ". Válidos: " + new TreeSet<>(camposProducto));
+            }
+        }
+        return campos.isEmpty() ? null : campos;
+    }
+    
+    // Cada selección de campos es una representación distinta, con su propio ETag
+    private static String representacion(String base, Set<String> campos) {
+        return campos == null ? base : base + ":" + String.join(",", campos);
+    }
+    
+    // La lista cacheada no se toca: el filtro se aplica al serializar (JSON o CBOR)
+    private static Object conCampos(Object cuerpo, Set<String> campos) {
+        if (campos == null) return cuerpo;
+        MappingJacksonValue valor = new MappingJacksonValue(cuerpo);
+        valor.setFilters(JacksonConfig.soloCampos(campos));
+        return valor;
+    }
+    
     @GetMapping("/test")
     public String test() {
         return "✅ Backend funcionando correctamente!";
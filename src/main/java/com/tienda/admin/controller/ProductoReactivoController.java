@@ -0,0 +1,88 @@
+package com.tienda.admin.controller;
+
+import com.tienda.admin.dto.ProductoDTO;
+import com.tienda.admin.service.ProductoReactivoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Variante de solo lectura de /api/productos sobre R2DBC (perfil "reactivo").
+ * <p>
+ * El hilo de Tomcat se libera en cuanto se devuelve el Flux/Mono; la respuesta se completa
+ * cuando llegan las filas. Con Accept: application/x-ndjson el catálogo se emite producto a
+ * producto y la siguiente fila no se pide hasta haber escrito la anterior.
+ */
+@RestController
+@RequestMapping("/api/reactivo/productos")
+@CrossOrigin(origins = "*")
+@Profile("reactivo")
+public class ProductoReactivoController {
+    
+    @Autowired
+    private ProductoReactivoService productoReactivoService;
+    
+    @GetMapping(produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<ProductoDTO> obtenerTodosLosProductos() {
+        return productoReactivoService.obtenerTodosLosProductos();
+    }
+    
+    // Paginación por cursor, con los mismos parámetros y cabecera Link que /api/productos
+    @GetMapping(params = "limit")
+    public Mono<ResponseEntity<?>> obtenerPagina(@RequestParam Integer limit,
+                                                 @RequestParam(required = false) String after) {
+        // La URL de la página siguiente se arma con la petición actual, antes de salir del hilo
+        ServletUriComponentsBuilder actual = ServletUriComponentsBuilder.fromCurrentRequest();
+        try {
+            return productoReactivoService.obtenerPaginaProductos(after, limit)
+                    .map(pagina -> {
+                        ResponseEntity.BodyBuilder respuesta = ResponseEntity.ok();
+                        if (pagina.getSiguienteCursor() != null) {
+                            String siguiente = actual
+                                    .replaceQueryParam("limit", pagina.getLimite())
+                                    .replaceQueryParam("after", pagina.getSiguienteCursor())
+                                    .build()
+                                    .toUriString();
+                            respuesta.header(HttpHeaders.LINK, "<" + siguiente + ">; rel=\"next\"");
+                        }
+                        return respuesta.body(pagina);
+                    });
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().body(Map.of("success", false, "message", e.getMessage())));
+        }
+    }
+    
+    @GetMapping(params = {"after", "!limit"})
+    public Mono<ResponseEntity<?>> obtenerPaginaSinLimite(@RequestParam String after) {
+        return obtenerPagina(null, after);
+    }
+    
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ProductoDTO>> obtenerProductoPorId(@PathVariable Long id) {
+        return productoReactivoService.obtenerProductoPorId(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping(value = "/buscar", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<ProductoDTO> buscarProductos(
+            @RequestParam(required = false) String nombre,
+            @RequestParam(required = false) String categoria,
+            @RequestParam(required = false) Boolean ofertaEspecial) {
+        return productoReactivoService.buscarProductos(nombre, categoria, ofertaEspecial);
+    }
+    
+    @GetMapping("/categorias")
+    public Mono<List<String>> obtenerCategorias() {
+        return productoReactivoService.obtenerCategorias();
+    }
+}
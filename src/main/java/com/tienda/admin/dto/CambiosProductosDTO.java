@@ -0,0 +1,19 @@
+package com.tienda.admin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambiosProductosDTO {
+    // Productos creados o modificados desde la versión pedida
+    private List<ProductoDTO> productos;
+    // Ids de productos borrados desde la versión pedida
+    private List<Long> eliminados;
+    // Valor para el parámetro "since" de la siguiente llamada
+    private long version;
+}
@@ -0,0 +1,18 @@
+package com.tienda.admin.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaProductosDTO {
+    private List<ProductoDTO> productos;
+    private int limite;
+    private boolean hayMas;
+    // Valor para el parámetro "after" de la siguiente página (null si no hay más)
+    private String siguienteCursor;
+}
@@ -1,6 +1,7 @@
 package com.tienda.admin.dto;
 
 import java.math.BigDecimal;
+import java.util.Map;
 
 public class ProductoDTO {
     private Long id;
@@ -11,6 +12,8 @@ public class ProductoDTO {
     private Boolean ofertaEspecial = false;
     private String imagen;
     private String img;
+    // Versiones redimensionadas de la imagen: thumb, card y detail
+    private Map<String, String> imagenVariantes;
     
     // Constructores
     public ProductoDTO() {}
@@ -93,4 +96,12 @@ public class ProductoDTO {
         this.img = img;
         this.imagen = img;
     }
+    
+    public Map<String, String> getImagenVariantes() {
+        return imagenVariantes;
+    }
+    
+    public void setImagenVariantes(Map<String, String> imagenVariantes) {
+        this.imagenVariantes = imagenVariantes;
+    }
 }
\ No newline at end of file
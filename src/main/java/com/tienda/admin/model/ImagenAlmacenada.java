@@ -0,0 +1,54 @@
+package com.tienda.admin.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "imagenes")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ImagenAlmacenada {
+    
+    // SHA-256 del contenido en hexadecimal
+    @Id
+    @Column(length = 64)
+    private String digest;
+    
+    // Ruta pública relativa, p. ej. /uploads/ab/cd/abcd....jpg
+    @Column(unique = true, nullable = false, length = 255)
+    private String ruta;
+    
+    private Long tamano;
+    
+    // Productos cuyo campo imagen apunta a esta ruta
+    @Builder.Default
+    private Integer referencias = 0;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    // Alta o última subida repetida del mismo contenido; de aquí cuenta la gracia del recolector
+    @Column(name = "ultimo_uso")
+    private LocalDateTime ultimoUso;
+    
+    // Variantes generadas (sufijos separados por comas); null si aún no hay ninguna
+    @Column(length = 50)
+    private String variantes;
+    
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (ultimoUso == null) {
+            ultimoUso = createdAt;
+        }
+    }
+}
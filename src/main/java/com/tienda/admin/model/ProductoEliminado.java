@@ -0,0 +1,24 @@
+package com.tienda.admin.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Registro de un borrado para la sincronización incremental (tombstone)
+@Entity
+@Table(name = "productos_eliminados")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoEliminado {
+    
+    @Id
+    @Column(name = "producto_id")
+    private Long productoId;
+    
+    @Column(name = "eliminado_en", nullable = false)
+    private LocalDateTime eliminadoEn;
+}
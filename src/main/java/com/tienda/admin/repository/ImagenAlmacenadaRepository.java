@@ -0,0 +1,69 @@
+package com.tienda.admin.repository;
+
+import com.tienda.admin.model.ImagenAlmacenada;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ImagenAlmacenadaRepository extends JpaRepository<ImagenAlmacenada, String> {
+    
+    Optional<ImagenAlmacenada> findByRuta(String ruta);
+    
+    boolean existsByRuta(String ruta);
+    
+    // Alta idempotente: dos subidas simultáneas del mismo contenido no chocan
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO imagenes (digest, ruta, tamano, referencias, created_at, ultimo_uso) " +
+            "VALUES (:digest, :ruta, :tamano, :referencias, NOW(), NOW()) ON CONFLICT (digest) DO NOTHING",
+            nativeQuery = true)
+    int insertarSiNoExiste(String digest, String ruta, long tamano, int referencias);
+    
+    // Incremento atómico en la base de datos, sin leer y reescribir la entidad
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImagenAlmacenada i SET i.referencias = i.referencias + :delta WHERE i.ruta = :ruta")
+    int ajustarReferencias(String ruta, int delta);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImagenAlmacenada i SET i.referencias = :referencias WHERE i.digest = :digest")
+    int fijarReferencias(String digest, int referencias);
+    
+    // Una subida repetida del mismo contenido: 0 si la fila ya no existe
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE imagenes SET ultimo_uso = NOW() WHERE digest = :digest", nativeQuery = true)
+    int marcarUso(String digest);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImagenAlmacenada i SET i.variantes = :variantes WHERE i.ruta = :ruta")
+    int registrarVariantes(String ruta, String variantes);
+    
+    // Pares (ruta, variantes) de las imágenes con alguna variante generada
+    @Query("SELECT i.ruta, i.variantes FROM ImagenAlmacenada i WHERE i.variantes IS NOT NULL")
+    List<Object[]> findVariantesGeneradas();
+    
+    @Query("SELECT i FROM ImagenAlmacenada i WHERE i.referencias <= 0 AND i.ultimoUso < :limite")
+    List<ImagenAlmacenada> findSinReferencias(LocalDateTime limite);
+    
+    // SELECT ... FOR UPDATE para borrar fila y fichero: hasta el commit, marcarUso y
+    // ajustarReferencias esperan. Vacío si desde la consulta se ha vuelto a usar
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM ImagenAlmacenada i WHERE i.digest = :digest AND i.referencias <= 0 AND i.ultimoUso < :limite")
+    Optional<ImagenAlmacenada> bloquearSiSigueSinUso(String digest, LocalDateTime limite);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM ImagenAlmacenada i WHERE i.ruta = :ruta")
+    Optional<ImagenAlmacenada> bloquearPorRuta(String ruta);
+}
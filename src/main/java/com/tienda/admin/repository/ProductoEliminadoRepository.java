@@ -0,0 +1,27 @@
+package com.tienda.admin.repository;
+
+import com.tienda.admin.model.ProductoEliminado;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ProductoEliminadoRepository extends JpaRepository<ProductoEliminado, Long> {
+    
+    @Query("SELECT e.productoId FROM ProductoEliminado e WHERE e.eliminadoEn > :desde ORDER BY e.eliminadoEn ASC")
+    List<Long> findIdsEliminadosDesde(LocalDateTime desde);
+    
+    // Junto con MAX(updated_at) de productos, base de la versión del catálogo
+    @Query("SELECT MAX(e.eliminadoEn) FROM ProductoEliminado e")
+    LocalDateTime findUltimoBorrado();
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProductoEliminado e WHERE e.eliminadoEn < :limite")
+    int purgarAnterioresA(LocalDateTime limite);
+}
@@ -1,12 +1,18 @@
 package com.tienda.admin.repository;
 
 import com.tienda.admin.model.Producto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductoRepository extends JpaRepository<Producto, Long> {
@@ -28,4 +34,34 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
             "(:ofertaEspecial IS NULL OR p.ofertaEspecial = :ofertaEspecial) " +
             "ORDER BY p.nombre ASC")
     List<Producto> buscarProductos(String nombre, String categoria, Boolean ofertaEspecial);
-}
\ No newline at end of file
+    
+    // Base del Last-Modified y del punto de partida de la sincronización
+    @Query("SELECT MAX(p.updatedAt) FROM Producto p")
+    LocalDateTime findUltimaModificacion();
+    
+    // Contador que sube en la misma transacción que cada escritura (trigger de V6): el ETag
+    @Query(value = "SELECT version FROM catalogo_version WHERE id = 1", nativeQuery = true)
+    long findVersionCatalogo();
+    
+    // Sincronización incremental: altas y modificaciones posteriores a una versión
+    List<Producto> findByUpdatedAtAfterOrderByUpdatedAtAscIdAsc(LocalDateTime desde);
+    
+    // Productos que usan una imagen subida (imagen guarda la URL completa); el LIKE con
+    // comodín inicial lo sirve el índice de trigramas idx_productos_imagen_trgm (V5)
+    long countByImagenEndingWith(String ruta);
+    
+    // Paginación por cursor (keyset sobre nombre, id): primera página
+    List<Producto> findAllByOrderByNombreAscIdAsc(Limit limit);
+    
+    // Paginación por cursor: filas estrictamente posteriores a (nombre, id). La comparación
+    // de tuplas es un límite del índice (nombre, id); con OR se recorrería desde el principio
+    @Query("SELECT p FROM Producto p WHERE (p.nombre, p.id) > (:nombre, :id) " +
+            "ORDER BY p.nombre ASC, p.id ASC")
+    List<Producto> findPaginaDespuesDe(String nombre, Long id, Limit limit);
+    
+    // Recorrido completo con cursor de servidor (ScrollableResults), para streaming NDJSON.
+    // Debe consumirse dentro de una transacción y cerrarse al terminar.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT p FROM Producto p ORDER BY p.nombre ASC, p.id ASC")
+    Stream<Producto> streamTodosOrdenados();
+}
@@ -0,0 +1,292 @@
+package com.tienda.admin.service;
+
+import com.tienda.admin.model.ImagenAlmacenada;
+import com.tienda.admin.repository.ImagenAlmacenadaRepository;
+import com.tienda.admin.repository.ProductoRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.stream.Stream;
+
+/**
+ * Almacén de imágenes direccionado por contenido.
+ * <p>
+ * Cada subida se copia en streaming a un temporal calculando su SHA-256 a la vez; el contenido queda
+ * una sola vez en {@code uploads/ab/cd/<sha256>.<ext>}. Las referencias desde
+ * Producto.imagen se cuentan en la tabla imagenes y un recolector periódico borra los
+ * ficheros sin referencias (tras un periodo de gracia desde su último uso, para no borrar
+ * una imagen recién subida, o vuelta a subir, cuyo producto aún no se ha guardado).
+ * <p>
+ * El fichero se borra con la fila bloqueada ({@code SELECT ... FOR UPDATE}) y antes del
+ * commit: una subida del mismo contenido espera en {@code marcarUso}, no encuentra la
+ * fila y vuelve a publicar el fichero cuando el borrado ya ha terminado.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlmacenImagenes {
+
+    public static final String PREFIJO_URL = "/uploads/";
+
+    private final ImagenAlmacenadaRepository imagenRepository;
+    private final ProductoRepository productoRepository;
+    private final ProcesadorImagenes procesadorImagenes;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final int BUFFERS_EN_POOL = 32;
+
+    private final Path uploadPath = Paths.get("uploads");
+
+    // Buffers directos compartidos por las subidas concurrentes: no crecen el heap
+    private final BlockingQueue<ByteBuffer> buffers = new ArrayBlockingQueue<>(BUFFERS_EN_POOL);
+
+    @Value("${imagenes.gc.gracia:PT1H}")
+    private Duration gracia;
+
+    /**
+     * Guarda el contenido y devuelve su ruta pública. Si ya existía un fichero con el
+     * mismo contenido se devuelve su ruta y no se escribe nada nuevo.
+     * <p>
+     * El formato se decide por los primeros bytes, no por lo que declare el cliente: si no
+     * es una imagen aceptada se rechaza sin leer el resto. El cuerpo se copia al disco en
+     * bloques a través de un buffer directo reutilizado y se corta en cuanto supera
+     * {@code maxBytes}, así que ninguna subida se mantiene entera en memoria.
+     */
+    public ImagenGuardada guardar(InputStream contenido, long maxBytes) throws IOException {
+        byte[] cabecera = contenido.readNBytes(TipoImagen.BYTES_CABECERA);
+        TipoImagen tipo = TipoImagen.detectar(cabecera, cabecera.length);
+        if (tipo == null) {
+            throw new IllegalArgumentException("El archivo no es una imagen válida. Use: JPG, PNG, GIF, WEBP, BMP");
+        }
+
+        // El temporal está en uploads/, en el mismo sistema de ficheros que el destino:
+        // al final se renombra, nunca se vuelve a copiar
+        Path temporal = Files.createTempFile(uploadPath, "subida-", ".tmp");
+        ByteBuffer buffer = tomarBuffer();
+        try {
+            MessageDigest sha256 = nuevoDigest();
+            sha256.update(cabecera);
+            long tamano = cabecera.length;
+
+            try (FileChannel salida = FileChannel.open(temporal, StandardOpenOption.WRITE);
+                 ReadableByteChannel entrada = Channels.newChannel(contenido)) {
+                salida.write(ByteBuffer.wrap(cabecera));
+
+                boolean fin = false;
+                while (!fin) {
+                    buffer.clear();
+                    while (buffer.hasRemaining()) {
+                        if (entrada.read(buffer) < 0) {
+                            fin = true;
+                            break;
+                        }
+                    }
+                    tamano += buffer.position();
+                    if (tamano > maxBytes) {
+                        throw new ImagenDemasiadoGrandeException(maxBytes);
+                    }
+
+                    buffer.flip();
+                    sha256.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        salida.write(buffer);
+                    }
+                }
+            }
+
+            String digest = HexFormat.of().formatHex(sha256.digest());
+            return new ImagenGuardada(publicar(temporal, digest, tamano, tipo.getExtension()), tipo, tamano);
+        } finally {
+            devolverBuffer(buffer);
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    private String publicar(Path temporal, String digest, long tamano, String extension) throws IOException {
+        // Renovar el último uso aparta la imagen del recolector durante el periodo de gracia,
+        // hasta que se guarde el producto que la usa. Si el recolector la está borrando,
+        // marcarUso espera a su commit y devuelve 0: se vuelve a publicar
+        var existente = imagenRepository.findById(digest);
+        if (existente.isPresent() && imagenRepository.marcarUso(digest) > 0
+                && Files.exists(rutaFichero(existente.get().getRuta()))) {
+            log.info("♻️ Imagen duplicada, se reutiliza {}", existente.get().getRuta());
+            return existente.get().getRuta();
+        }
+
+        String ruta = PREFIJO_URL + digest.substring(0, 2) + "/" + digest.substring(2, 4) + "/" + digest + "." + extension;
+        Path destino = rutaFichero(ruta);
+        Files.createDirectories(destino.getParent());
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        imagenRepository.insertarSiNoExiste(digest, ruta, tamano, 0);
+        procesadorImagenes.generarVariantesAsync(destino);
+        return ruta;
+    }
+
+    // Si el pool está vacío se crea otro buffer; al devolverlo solo se conserva si cabe
+    private ByteBuffer tomarBuffer() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(TAMANO_BUFFER);
+    }
+
+    private void devolverBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        buffers.offer(buffer);
+    }
+
+    /** Ajusta las referencias cuando Producto.imagen pasa de {@code anterior} a {@code nueva}. */
+    public void cambiarReferencia(String anterior, String nueva) {
+        String rutaAnterior = rutaRelativa(anterior);
+        String rutaNueva = rutaRelativa(nueva);
+        if (Objects.equals(rutaAnterior, rutaNueva)) return;
+
+        if (rutaNueva != null) imagenRepository.ajustarReferencias(rutaNueva, 1);
+        if (rutaAnterior != null) imagenRepository.ajustarReferencias(rutaAnterior, -1);
+    }
+
+    /** Borra la imagen solo si ningún producto la usa. */
+    public boolean eliminarSiSinUso(String imagen) {
+        String ruta = rutaRelativa(imagen);
+        if (ruta == null) return false;
+
+        return Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                imagenRepository.bloquearPorRuta(ruta)
+                        .map(this::borrarSiNingunProductoLaUsa)
+                        .orElse(false)));
+    }
+
+    @Scheduled(fixedDelayString = "${imagenes.gc.intervalo-ms:3600000}", initialDelay = 60_000)
+    public void recolectar() {
+        LocalDateTime limite = LocalDateTime.now().minus(gracia);
+        List<ImagenAlmacenada> candidatas = imagenRepository.findSinReferencias(limite);
+        int borradas = 0;
+
+        for (ImagenAlmacenada candidata : candidatas) {
+            // Una transacción por imagen: el bloqueo de la fila dura solo su borrado
+            boolean borrada = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                    imagenRepository.bloquearSiSigueSinUso(candidata.getDigest(), limite)
+                            .map(this::borrarSiNingunProductoLaUsa)
+                            .orElse(false)));
+            if (borrada) borradas++;
+        }
+        if (borradas > 0) {
+            log.info("🧹 Recolector de imágenes: {} ficheros sin uso eliminados", borradas);
+        }
+    }
+
+    // Con la fila ya bloqueada. El contador es solo un filtro rápido: la tabla productos es la
+    // fuente de verdad (p. ej. filas insertadas por la importación masiva, que no pasan por aquí)
+    private boolean borrarSiNingunProductoLaUsa(ImagenAlmacenada imagen) {
+        long usos = productoRepository.countByImagenEndingWith(imagen.getRuta());
+        if (usos > 0) {
+            imagenRepository.fijarReferencias(imagen.getDigest(), (int) usos);
+            return false;
+        }
+        // Si el fichero no se puede borrar se conserva la fila, y el recolector lo reintenta
+        if (!borrarFichero(imagen)) return false;
+        imagenRepository.delete(imagen);
+        return true;
+    }
+
+    // Registra en la tabla los ficheros subidos antes del almacén por contenido,
+    // para que también los cubra el recolector
+    @EventListener(ApplicationReadyEvent.class)
+    public void registrarExistentes() {
+        if (!Files.isDirectory(uploadPath)) return;
+
+        try (Stream<Path> archivos = Files.list(uploadPath)) {
+            archivos.filter(Files::isRegularFile)
+                    .filter(p -> !ProcesadorImagenes.esVariante(p.getFileName().toString()))
+                    .filter(p -> !p.getFileName().toString().endsWith(".tmp"))
+                    .forEach(this::registrarExistente);
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo revisar el directorio de uploads: {}", e.getMessage());
+        }
+    }
+
+    private void registrarExistente(Path archivo) {
+        String ruta = PREFIJO_URL + archivo.getFileName();
+        if (imagenRepository.existsByRuta(ruta)) return;
+
+        MessageDigest sha256 = nuevoDigest();
+        try (InputStream entrada = new DigestInputStream(Files.newInputStream(archivo), sha256)) {
+            entrada.transferTo(OutputStream.nullOutputStream());
+            String digest = HexFormat.of().formatHex(sha256.digest());
+
+            int usos = (int) productoRepository.countByImagenEndingWith(ruta);
+            imagenRepository.insertarSiNoExiste(digest, ruta, Files.size(archivo), usos);
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudo registrar {}: {}", archivo.getFileName(), e.getMessage());
+        }
+    }
+
+    private boolean borrarFichero(ImagenAlmacenada imagen) {
+        Path fichero = rutaFichero(imagen.getRuta());
+        try {
+            Files.deleteIfExists(fichero);
+            procesadorImagenes.eliminarVariantes(fichero);
+            return true;
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo borrar {}: {}", imagen.getRuta(), e.getMessage());
+            return false;
+        }
+    }
+
+    /** Ruta relativa (/uploads/...) de una URL de imagen, o null si no es una imagen subida. */
+    public static String rutaRelativa(String imagen) {
+        if (imagen == null) return null;
+        int inicio = imagen.indexOf(PREFIJO_URL);
+        return inicio < 0 ? null : imagen.substring(inicio);
+    }
+
+    private Path rutaFichero(String ruta) {
+        Path fichero = uploadPath.resolve(ruta.substring(PREFIJO_URL.length())).normalize();
+        if (!fichero.startsWith(uploadPath)) {
+            throw new IllegalArgumentException("Ruta de imagen inválida: " + ruta);
+        }
+        return fichero;
+    }
+
+    public record ImagenGuardada(String ruta, TipoImagen tipo, long tamano) {}
+
+    // Sigue siendo un IllegalArgumentException para quien solo distingue entrada inválida;
+    // los controladores la responden con 413
+    public static class ImagenDemasiadoGrandeException extends IllegalArgumentException {
+        public ImagenDemasiadoGrandeException(long maxBytes) {
+            super("La imagen es demasiado grande. Máximo " + maxBytes / (1024 * 1024) + "MB");
+        }
+    }
+
+    private static MessageDigest nuevoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
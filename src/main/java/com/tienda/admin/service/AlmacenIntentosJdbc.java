@@ -0,0 +1,54 @@
+package com.tienda.admin.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Almacén compartido entre instancias sobre la misma base de datos PostgreSQL.
+ * Cada fallo es un único UPSERT atómico, sin bloqueos en la aplicación.
+ * La tabla login_intentos la crea la migración V1.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "seguridad.login.backend", havingValue = "jdbc")
+public class AlmacenIntentosJdbc implements AlmacenIntentosLogin {
+    
+    private static final RowMapper<EstadoIntentos> MAPPER =
+            (rs, i) -> new EstadoIntentos(rs.getInt("fallos"), rs.getLong("ultimo_fallo"));
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public EstadoIntentos registrarFallo(String clave, long ahora, long ventanaMs) {
+        return jdbcTemplate.queryForObject("""
+            INSERT INTO login_intentos (clave, fallos, ultimo_fallo) VALUES (?, 1, ?)
+            ON CONFLICT (clave) DO UPDATE SET
+                fallos = CASE WHEN login_intentos.ultimo_fallo <= ? THEN 1 ELSE login_intentos.fallos + 1 END,
+                ultimo_fallo = EXCLUDED.ultimo_fallo
+            RETURNING fallos, ultimo_fallo
+            """, MAPPER, clave, ahora, ahora - ventanaMs);
+    }
+    
+    @Override
+    public EstadoIntentos consultar(String clave, long ahora, long ventanaMs) {
+        List<EstadoIntentos> estados = jdbcTemplate.query(
+                "SELECT fallos, ultimo_fallo FROM login_intentos WHERE clave = ? AND ultimo_fallo > ?",
+                MAPPER, clave, ahora - ventanaMs);
+        return estados.isEmpty() ? null : estados.get(0);
+    }
+    
+    @Override
+    public void limpiar(String clave) {
+        jdbcTemplate.update("DELETE FROM login_intentos WHERE clave = ?", clave);
+    }
+    
+    @Override
+    public int purgarExpirados(long ahora, long ventanaMs) {
+        return jdbcTemplate.update("DELETE FROM login_intentos WHERE ultimo_fallo <= ?", ahora - ventanaMs);
+    }
+}
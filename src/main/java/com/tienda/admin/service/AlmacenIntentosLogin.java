@@ -0,0 +1,31 @@
+package com.tienda.admin.service;
+
+/**
+ * Almacén de intentos fallidos de login usado por {@link LimitadorIntentosLogin}.
+ * <p>
+ * La implementación en memoria sirve para una sola instancia; con varias instancias
+ * se configura {@code seguridad.login.backend=jdbc} para compartir el estado.
+ */
+public interface AlmacenIntentosLogin {
+    
+    /**
+     * Registra un fallo para la clave. Si el último fallo es anterior a la ventana,
+     * el contador vuelve a empezar en 1.
+     */
+    EstadoIntentos registrarFallo(String clave, long ahora, long ventanaMs);
+    
+    /** Estado vigente de la clave, o null si no hay fallos dentro de la ventana. */
+    EstadoIntentos consultar(String clave, long ahora, long ventanaMs);
+    
+    void limpiar(String clave);
+    
+    /** Elimina las claves sin fallos dentro de la ventana. Devuelve cuántas se borraron. */
+    int purgarExpirados(long ahora, long ventanaMs);
+    
+    record EstadoIntentos(int fallos, long ultimoFallo) {
+        
+        public boolean vigente(long ahora, long ventanaMs) {
+            return ahora - ultimoFallo < ventanaMs;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.tienda.admin.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Almacén local sin bloqueos globales: cada clave guarda un estado inmutable que se
+ * sustituye con compare-and-set. El número de claves tiene un techo fijo.
+ * <p>
+ * Al alcanzar el techo no se recorre el mapa (eso lo hace solo la purga programada): se
+ * examina una muestra de claves a partir de un punto aleatorio y se desaloja la caducada
+ * o, si no hay, la de menos fallos y más antigua. Así una avalancha de claves nuevas de
+ * un fallo no borra los contadores de las cuentas atacadas.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "seguridad.login.backend", havingValue = "memoria", matchIfMissing = true)
+public class AlmacenIntentosMemoria implements AlmacenIntentosLogin {
+    
+    // Claves examinadas para elegir víctima cuando se alcanza el techo
+    private static final int MUESTRA_DESALOJO = 16;
+    // Cubetas vacías: zonas que se prueban como mucho para completar la muestra
+    private static final int ZONAS_MAX = 4 * MUESTRA_DESALOJO;
+    
+    private final Map<String, EstadoIntentos> intentos = new ConcurrentHashMap<>();
+    // Claves vigentes desalojadas desde la última purga; se avisa en la purga, no en cada una
+    private final LongAdder desalojadas = new LongAdder();
+    
+    @Value("${seguridad.login.max-entradas:100000}")
+    private int maxEntradas;
+    
+    @Override
+    public EstadoIntentos registrarFallo(String clave, long ahora, long ventanaMs) {
+        while (true) {
+            EstadoIntentos actual = intentos.get(clave);
+            
+            if (actual == null) {
+                if (intentos.size() >= maxEntradas) {
+                    desalojarUna(ahora, ventanaMs);
+                }
+                EstadoIntentos nuevo = new EstadoIntentos(1, ahora);
+                if (intentos.putIfAbsent(clave, nuevo) == null) {
+                    return nuevo;
+                }
+            } else {
+                EstadoIntentos nuevo = actual.vigente(ahora, ventanaMs)
+                        ? new EstadoIntentos(actual.fallos() + 1, ahora)
+                        : new EstadoIntentos(1, ahora);
+                if (intentos.replace(clave, actual, nuevo)) {
+                    return nuevo;
+                }
+            }
+            // Otro hilo modificó la clave entre la lectura y la escritura: reintentar
+        }
+    }
+    
+    @Override
+    public EstadoIntentos consultar(String clave, long ahora, long ventanaMs) {
+        EstadoIntentos estado = intentos.get(clave);
+        return estado != null && estado.vigente(ahora, ventanaMs) ? estado : null;
+    }
+    
+    @Override
+    public void limpiar(String clave) {
+        intentos.remove(clave);
+    }
+    
+    // Solo desde la tarea programada: es el único recorrido completo del mapa
+    @Override
+    public int purgarExpirados(long ahora, long ventanaMs) {
+        long desalojos = desalojadas.sumThenReset();
+        if (desalojos > 0) {
+            log.warn("⚠️ Techo de {} claves de intentos alcanzado; desalojadas {} claves vigentes", maxEntradas, desalojos);
+        }
+        
+        int antes = intentos.size();
+        intentos.values().removeIf(estado -> !estado.vigente(ahora, ventanaMs));
+        return antes - intentos.size();
+    }
+    
+    private void desalojarUna(long ahora, long ventanaMs) {
+        // Cada clave de la muestra sale de una zona aleatoria distinta: claves parecidas
+        // ("ip:10.0.0.1", "ip:10.0.0.2") caen en cubetas contiguas, y una zona grande sería
+        // una muestra agrupada
+        Map.Entry<String, EstadoIntentos>[] peor = new Map.Entry[1];
+        int examinadas = 0;
+        for (int zona = 0; zona < ZONAS_MAX && examinadas < MUESTRA_DESALOJO; zona++) {
+            if (regionAleatoria().tryAdvance(entrada -> {
+                if (peor[0] == null || peorCandidata(entrada.getValue(), peor[0].getValue(), ahora, ventanaMs)) {
+                    peor[0] = Map.entry(entrada.getKey(), entrada.getValue());
+                }
+            })) {
+                examinadas++;
+            }
+        }
+        if (peor[0] != null && intentos.remove(peor[0].getKey(), peor[0].getValue())
+                && peor[0].getValue().vigente(ahora, ventanaMs)) {
+            desalojadas.increment();
+        }
+    }
+
+    // Las caducadas van primero; entre vigentes, la de menos fallos y más antigua
+    private static boolean peorCandidata(EstadoIntentos estado, EstadoIntentos peor, long ahora, long ventanaMs) {
+        boolean caducada = !estado.vigente(ahora, ventanaMs);
+        boolean peorCaducada = !peor.vigente(ahora, ventanaMs);
+        if (caducada != peorCaducada) return caducada;
+        return estado.fallos() < peor.fallos()
+                || (estado.fallos() == peor.fallos() && estado.ultimoFallo() < peor.ultimoFallo());
+    }
+
+    // Cada trySplit parte en dos el rango de cubetas pendiente en O(1): bajando por mitades
+    // elegidas al azar se llega en O(log n) a una zona aleatoria de un par de cubetas
+    private Spliterator<Map.Entry<String, EstadoIntentos>> regionAleatoria() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Spliterator<Map.Entry<String, EstadoIntentos>> region = intentos.entrySet().spliterator();
+        int niveles = 32 - Integer.numberOfLeadingZeros(intentos.size());
+        for (int i = 0; i < niveles; i++) {
+            Spliterator<Map.Entry<String, EstadoIntentos>> mitad = region.trySplit();
+            if (mitad == null) break;
+            if (random.nextBoolean()) region = mitad;
+        }
+        return region;
+    }
+}
@@ -2,10 +2,11 @@ package com.tienda.admin.service;
 
 import com.tienda.admin.model.Administrador;
 import com.tienda.admin.repository.AdministradorRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.bcrypt.BCrypt;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,23 +21,33 @@ public class AuthService {
     
     private final AdministradorRepository administradorRepository;
     private final BCryptPasswordEncoder passwordEncoder; // ✅ INYECTADO CORRECTAMENTE
+    private final LimitadorIntentosLogin limitadorIntentos;
+    private final TokenService tokenService;
+    private final VerificadorPasswords verificadorPasswords;
+    private final RegistroUltimoLogin registroUltimoLogin;
+    private final MeterRegistry meterRegistry;
     
-    // Simple rate limiting
-    private final Map<String, LoginAttempt> loginAttempts = new HashMap<>();
-    private static final int MAX_ATTEMPTS = 5;
-    private static final long LOCKOUT_TIME_MS = 15 * 60 * 1000; // 15 minutos
-    
-    @Transactional
     public LoginResult authenticate(String username, String password) {
-        log.info("=== INTENTO DE LOGIN ===");
-        log.info("Usuario: {}", username);
+        return authenticate(username, password, null);
+    }
+    
+    // Sin @Transactional: no se retiene una conexión del pool mientras se espera a BCrypt
+    public LoginResult authenticate(String username, String password, String ipCliente) {
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        LoginResult resultado = autenticar(username, password, ipCliente);
+        muestra.stop(meterRegistry.timer("tienda.auth.login", "resultado", resultado.tipo()));
+        return resultado;
+    }
+    
+    private LoginResult autenticar(String username, String password, String ipCliente) {
+        log.debug("Intento de login de {}", username);
         
         // Sanitizar entrada
         String cleanUsername = sanitizeInput(username);
         String cleanPassword = sanitizeInput(password);
         
-        // Verificar rate limiting
-        if (isAccountLocked(cleanUsername)) {
+        // Verificar rate limiting (por usuario y por IP)
+        if (limitadorIntentos.estaBloqueado(cleanUsername, ipCliente)) {
             log.warn("⛔ Cuenta bloqueada: {}", cleanUsername);
             return LoginResult.accountLocked();
         }
@@ -47,13 +58,12 @@ public class AuthService {
         
         if (adminOpt.isEmpty()) {
             log.warn("❌ Usuario no encontrado: {}", cleanUsername);
-            recordFailedAttempt(cleanUsername);
+            limitadorIntentos.registrarFallo(cleanUsername, ipCliente);
             return LoginResult.invalidCredentials();
         }
         
         Administrador admin = adminOpt.get();
-        log.info("✅ Usuario encontrado en DB: {}", admin.getUsername());
-        log.info("🔑 Hash en DB: {}", admin.getPasswordHash());
+        log.debug("Usuario encontrado en DB: {}", admin.getUsername());
         
         // DEBUG: Verificar formato del hash
         if (admin.getPasswordHash() == null || admin.getPasswordHash().isEmpty()) {
@@ -65,50 +75,46 @@ public class AuthService {
         if (!admin.getPasswordHash().startsWith("$2a$") && 
             !admin.getPasswordHash().startsWith("$2b$") &&
             !admin.getPasswordHash().startsWith("$2y$")) {
-            log.error("⚠️ El hash no tiene formato BCrypt: {}", admin.getPasswordHash());
+            log.error("⚠️ El hash de {} no tiene formato BCrypt", admin.getUsername());
             return LoginResult.invalidCredentials();
         }
         
-        // Verificar contraseña CON DEBUG
-        log.info("🔐 Comparando contraseña recibida con hash...");
-        boolean passwordMatches = false;
-        
+        // Verificar contraseña: una única comprobación BCrypt en el pool dedicado
+        VerificadorPasswords.Verificacion verificacion;
         try {
-            // Método 1: Usando passwordEncoder
-            passwordMatches = passwordEncoder.matches(cleanPassword, admin.getPasswordHash());
-            log.info("📊 Resultado passwordEncoder.matches(): {}", passwordMatches);
-            
-            // Método 2: Usando BCrypt directamente para comparar
-            if (!passwordMatches) {
-                log.info("🔄 Intentando con BCrypt.checkpw()...");
-                passwordMatches = BCrypt.checkpw(cleanPassword, admin.getPasswordHash());
-                log.info("📊 Resultado BCrypt.checkpw(): {}", passwordMatches);
-            }
-            
+            verificacion = verificadorPasswords.verificar(cleanPassword, admin.getPasswordHash());
+        } catch (VerificadorPasswords.ServidorOcupadoException e) {
+            log.warn("🚦 Pool BCrypt saturado, login rechazado para: {}", cleanUsername);
+            return LoginResult.busy(e.getMessage());
         } catch (Exception e) {
             log.error("🔥 Error al verificar contraseña: {}", e.getMessage(), e);
+            return LoginResult.invalidCredentials();
         }
         
-        if (!passwordMatches) {
+        if (!verificacion.coincide()) {
             log.warn("❌ Contraseña incorrecta para usuario: {}", cleanUsername);
-            recordFailedAttempt(cleanUsername);
-            
-            // DEBUG: Generar un hash con la contraseña recibida para comparar
-            String testHash = passwordEncoder.encode(cleanPassword);
-            log.info("🔍 Hash generado con contraseña recibida: {}", testHash);
-            log.info("🔍 Hash almacenado en DB: {}", admin.getPasswordHash());
-            
+            limitadorIntentos.registrarFallo(cleanUsername, ipCliente);
             return LoginResult.invalidCredentials();
         }
         
         // Login exitoso
         log.info("✅ Login exitoso para: {}", admin.getUsername());
-        loginAttempts.remove(cleanUsername);
-        admin.setLastLogin(LocalDateTime.now());
-        administradorRepository.save(admin);
+        limitadorIntentos.registrarExito(cleanUsername);
+        
+        // last_login se escribe en segundo plano, agrupado con otros logins
+        LocalDateTime ahora = LocalDateTime.now();
+        admin.setLastLogin(ahora);
+        registroUltimoLogin.registrar(admin.getId(), ahora);
+        
+        // El coste BCrypt configurado subió desde que se guardó el hash: se actualiza ahora
+        if (verificacion.nuevoHash() != null) {
+            log.info("🔄 Re-hash de contraseña con el coste actual para: {}", admin.getUsername());
+            admin.setPasswordHash(verificacion.nuevoHash());
+            administradorRepository.save(admin);
+        }
         
-        // Generar token simple (en producción usar JWT)
-        String token = generateSimpleToken(admin);
+        // Token firmado (HMAC) validable sin consultar la base de datos
+        String token = tokenService.emitir(admin);
         
         return LoginResult.success(token, admin);
     }
@@ -118,57 +124,12 @@ public class AuthService {
         return input.trim();
     }
     
-    private boolean isAccountLocked(String username) {
-        LoginAttempt attempt = loginAttempts.get(username);
-        if (attempt == null) return false;
-        
-        long timeSinceLastAttempt = System.currentTimeMillis() - attempt.getLastAttempt();
-        boolean isLocked = attempt.getAttempts() >= MAX_ATTEMPTS && timeSinceLastAttempt < LOCKOUT_TIME_MS;
-        
-        if (isLocked) {
-            long remainingMinutes = (LOCKOUT_TIME_MS - timeSinceLastAttempt) / (60 * 1000);
-            log.warn("🔒 Cuenta {} bloqueada. Tiempo restante: {} minutos", 
-                    username, remainingMinutes + 1);
-        }
-        
-        // Resetear intentos si ya pasó el tiempo de bloqueo
-        if (timeSinceLastAttempt >= LOCKOUT_TIME_MS) {
-            loginAttempts.remove(username);
-            return false;
-        }
-        
-        return isLocked;
-    }
-    
-    private void recordFailedAttempt(String username) {
-        LoginAttempt attempt = loginAttempts.get(username);
-        if (attempt == null) {
-            attempt = new LoginAttempt();
-        }
-        attempt.incrementAttempts();
-        loginAttempts.put(username, attempt);
-        
-        int remainingAttempts = MAX_ATTEMPTS - attempt.getAttempts();
-        log.warn("⚠️ Intento fallido para {}. Intentos restantes: {}", 
-                username, Math.max(0, remainingAttempts));
+    public boolean validateToken(String token) {
+        return tokenService.verificar(token) != null;
     }
     
-    private String generateSimpleToken(Administrador admin) {
-        // Token simple: username + timestamp + random
-        String tokenData = admin.getUsername() + ":" + 
-                          System.currentTimeMillis() + ":" + 
-                          UUID.randomUUID();
-        return Base64.getEncoder().encodeToString(tokenData.getBytes());
-    }
-    
-    public boolean validateToken(String token) {
-        try {
-            String decoded = new String(Base64.getDecoder().decode(token));
-            String[] parts = decoded.split(":");
-            return parts.length == 3; // Validar formato
-        } catch (Exception e) {
-            return false;
-        }
+    public boolean logout(String token) {
+        return tokenService.revocar(token);
     }
     
     // Método para resetear contraseña (para pruebas)
@@ -181,7 +142,6 @@ public class AuthService {
             Administrador admin = adminOpt.get();
             String hashedPassword = passwordEncoder.encode(newPassword);
             log.info("🔄 Reseteando contraseña para: {}", username);
-            log.info("Nuevo hash: {}", hashedPassword);
             
             admin.setPasswordHash(hashedPassword);
             administradorRepository.save(admin);
@@ -194,8 +154,7 @@ public class AuthService {
     // Método para verificar hash existente
     public boolean verifyPassword(String rawPassword, String storedHash) {
         try {
-            return passwordEncoder.matches(rawPassword, storedHash) ||
-                   BCrypt.checkpw(rawPassword, storedHash);
+            return verificadorPasswords.verificar(rawPassword, storedHash).coincide();
         } catch (Exception e) {
             log.error("Error verificando contraseña: {}", e.getMessage());
             return false;
@@ -210,6 +169,7 @@ public class AuthService {
         private Administrador admin;
         private String message;
         private boolean locked;
+        private boolean busy;
         
         public static LoginResult success(String token, Administrador admin) {
             LoginResult result = new LoginResult();
@@ -227,6 +187,14 @@ public class AuthService {
             return result;
         }
         
+        public static LoginResult busy(String message) {
+            LoginResult result = new LoginResult();
+            result.success = false;
+            result.busy = true;
+            result.message = message;
+            return result;
+        }
+        
         public static LoginResult accountLocked() {
             LoginResult result = new LoginResult();
             result.success = false;
@@ -234,16 +202,13 @@ public class AuthService {
             result.message = "Cuenta bloqueada temporalmente por múltiples intentos fallidos. Intente en 15 minutos.";
             return result;
         }
-    }
-    
-    @Data
-    private static class LoginAttempt {
-        private int attempts = 0;
-        private long lastAttempt = System.currentTimeMillis();
         
-        public void incrementAttempts() {
-            this.attempts++;
-            this.lastAttempt = System.currentTimeMillis();
+        // Etiqueta de las métricas de login
+        String tipo() {
+            if (success) return "exito";
+            if (locked) return "bloqueado";
+            if (busy) return "ocupado";
+            return "fallido";
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,274 @@
+package com.tienda.admin.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tienda.admin.dto.ProductoDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Difunde por Server-Sent Events las altas, modificaciones y borrados de productos a los
+ * dashboards abiertos, para que actualicen la tabla sin volver a pedir la lista.
+ * <p>
+ * Cada suscriptor tiene una cola acotada que vacía un pool pequeño de hilos: quien publica
+ * solo encola. Si su cola se llena se le desconecta; el navegador reconecta solo y recarga
+ * la lista. El envío a un cliente que no lee se bloquea en el socket hasta el timeout de
+ * escritura de Tomcat: si pasa de {@code catalogo.eventos.envio-max} se expulsa a ese
+ * cliente y el pool suma un hilo de relevo mientras el suyo siga atrapado, así que un
+ * cliente lento no frena a nadie. Un latido periódico mantiene abierta la conexión a
+ * través de proxies y descubre los clientes que ya se fueron.
+ * Solo se difunden los cambios hechos en esta instancia.
+ */
+@Slf4j
+@Component
+public class DifusionCambiosProductos {
+
+    public static final String EVENTO = "producto";
+    public static final String CREADO = "creado";
+    public static final String ACTUALIZADO = "actualizado";
+    public static final String ELIMINADO = "eliminado";
+    // Cambio masivo (importación): el cliente recarga la lista en vez de recibir cada fila
+    public static final String RECARGAR = "recargar";
+
+    private static final long REINTENTO_MS = 3000;
+
+    // Estados de Suscriptor.enviandoDesde; cualquier otro valor es el nanoTime del inicio del envío
+    private static final long LIBRE = Long.MIN_VALUE;
+    private static final long ATASCADO = Long.MIN_VALUE + 1;
+    private static final long ATASCADO_CON_RELEVO = Long.MIN_VALUE + 2;
+
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor envios;
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+    // Con un envío en curso; pueden haber salido ya de suscriptores (cola llena)
+    private final Set<Suscriptor> enviando = ConcurrentHashMap.newKeySet();
+
+    private final int tamañoCola;
+    private final int maxSuscriptores;
+    private final long timeoutMs;
+    private final long envioMaxNanos;
+    private final int hilos;
+    private final int maxRelevos;
+    private int relevos;
+
+    private final Counter desconectadosLentos;
+
+    public DifusionCambiosProductos(ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${catalogo.eventos.hilos:4}") int hilos,
+                                    @Value("${catalogo.eventos.cola:256}") int tamañoCola,
+                                    @Value("${catalogo.eventos.max-suscriptores:1000}") int maxSuscriptores,
+                                    @Value("${catalogo.eventos.timeout:PT30M}") Duration timeout,
+                                    @Value("${catalogo.eventos.envio-max:PT5S}") Duration envioMax,
+                                    @Value("${catalogo.eventos.max-relevos:16}") int maxRelevos) {
+        this.objectMapper = objectMapper;
+        this.tamañoCola = tamañoCola;
+        this.maxSuscriptores = maxSuscriptores;
+        this.timeoutMs = timeout.toMillis();
+        this.envioMaxNanos = envioMax.toNanos();
+        this.hilos = hilos;
+        this.maxRelevos = maxRelevos;
+
+        // Cada suscriptor tiene como mucho una tarea pendiente: la cola la acota el número de
+        // suscriptores. Los hilos atrapados en un envío se relevan en vigilarEnvios
+        this.envios = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                new CustomizableThreadFactory("eventos-"));
+
+        Gauge.builder("tienda.productos.eventos.suscriptores", suscriptores, Set::size)
+                .description("Conexiones SSE abiertas")
+                .register(meterRegistry);
+        this.desconectadosLentos = Counter.builder("tienda.productos.eventos.desconectados")
+                .description("Suscriptores expulsados por no consumir sus eventos")
+                .register(meterRegistry);
+    }
+
+    /** Nueva conexión, o null si ya se alcanzó el máximo de suscriptores. */
+    public SseEmitter suscribir() {
+        if (suscriptores.size() >= maxSuscriptores) {
+            return null;
+        }
+
+        Suscriptor suscriptor = new Suscriptor(new SseEmitter(timeoutMs), new ArrayBlockingQueue<>(tamañoCola));
+        SseEmitter emitter = suscriptor.emitter();
+        emitter.onCompletion(() -> suscriptores.remove(suscriptor));
+        emitter.onError(e -> suscriptores.remove(suscriptor));
+        // Al caducar se cierra; el navegador vuelve a conectar
+        emitter.onTimeout(emitter::complete);
+
+        suscriptores.add(suscriptor);
+        // Primer envío: confirma la conexión y fija el tiempo de reconexión del navegador
+        encolar(suscriptor, SseEmitter.event().reconnectTime(REINTENTO_MS).comment("conectado").build());
+        return emitter;
+    }
+
+    /** Publica un cambio ya confirmado. El JSON se serializa una vez para todos los suscriptores. */
+    public void publicar(String tipo, Long id, ProductoDTO producto) {
+        if (suscriptores.isEmpty()) return;
+
+        Map<String, Object> datos = new LinkedHashMap<>();
+        datos.put("tipo", tipo);
+        datos.put("id", id);
+        datos.put("producto", producto);
+
+        Set<DataWithMediaType> evento;
+        try {
+            evento = SseEmitter.event()
+                    .name(EVENTO)
+                    .data(objectMapper.writeValueAsString(datos), MediaType.TEXT_PLAIN)
+                    .build();
+        } catch (JsonProcessingException e) {
+            log.warn("⚠️ No se pudo serializar el evento {} del producto {}: {}", tipo, id, e.getMessage());
+            return;
+        }
+        suscriptores.forEach(suscriptor -> encolar(suscriptor, evento));
+    }
+
+    @Scheduled(fixedDelayString = "${catalogo.eventos.latido-ms:15000}")
+    public void latido() {
+        if (suscriptores.isEmpty()) return;
+        Set<DataWithMediaType> latido = SseEmitter.event().comment("latido").build();
+        suscriptores.forEach(suscriptor -> encolar(suscriptor, latido));
+    }
+
+    // Un envío que no termina es un cliente que no lee: se le expulsa y, si su hilo sigue
+    // atrapado en el socket, otro ocupa su sitio hasta que Tomcat corte la escritura
+    @Scheduled(fixedDelayString = "${catalogo.eventos.vigilancia-ms:1000}")
+    public void vigilarEnvios() {
+        long ahora = System.nanoTime();
+        for (Suscriptor suscriptor : enviando) {
+            long inicio = suscriptor.enviandoDesde().get();
+            if (inicio == LIBRE || inicio == ATASCADO || inicio == ATASCADO_CON_RELEVO
+                    || ahora - inicio < envioMaxNanos) {
+                continue;
+            }
+
+            boolean relevo = ajustarRelevos(1);
+            if (suscriptor.enviandoDesde().compareAndSet(inicio, relevo ? ATASCADO_CON_RELEVO : ATASCADO)) {
+                if (desconectar(suscriptor)) {
+                    desconectadosLentos.increment();
+                    log.info("🐢 Suscriptor SSE desconectado: un envío lleva más de {} ms", envioMaxNanos / 1_000_000);
+                }
+            } else if (relevo) {
+                // El envío acabó entre la lectura y el compareAndSet
+                ajustarRelevos(-1);
+            }
+        }
+    }
+
+    // Crece o encoge el pool en un hilo; false si ya hay el máximo de relevos
+    private synchronized boolean ajustarRelevos(int delta) {
+        if (delta > 0 && relevos >= maxRelevos) return false;
+        relevos += delta;
+        if (delta > 0) {
+            envios.setMaximumPoolSize(hilos + relevos);
+            envios.setCorePoolSize(hilos + relevos);
+        } else {
+            envios.setCorePoolSize(hilos + relevos);
+            envios.setMaximumPoolSize(hilos + relevos);
+        }
+        return true;
+    }
+
+    private void encolar(Suscriptor suscriptor, Set<DataWithMediaType> evento) {
+        if (!suscriptor.cola().offer(evento)) {
+            desconectadosLentos.increment();
+            log.info("🐢 Suscriptor SSE desconectado: {} eventos sin consumir", tamañoCola);
+            desconectar(suscriptor);
+            return;
+        }
+        programar(suscriptor);
+    }
+
+    private void programar(Suscriptor suscriptor) {
+        if (suscriptor.programado().compareAndSet(false, true)) {
+            try {
+                envios.execute(() -> vaciar(suscriptor));
+            } catch (RejectedExecutionException e) {
+                // Solo ocurre al apagar
+                suscriptor.programado().set(false);
+            }
+        }
+    }
+
+    // Solo un hilo a la vez vacía cada suscriptor (programado), así que aquí nadie espera al emisor
+    private void vaciar(Suscriptor suscriptor) {
+        try {
+            Set<DataWithMediaType> evento;
+            while (!suscriptor.cerrado().get() && (evento = suscriptor.cola().poll()) != null) {
+                enviar(suscriptor, evento);
+            }
+            if (suscriptor.cerrado().get()) {
+                suscriptor.emitter().complete();
+                return;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Conexión cerrada por el cliente o emisor ya completado
+            suscriptores.remove(suscriptor);
+            suscriptor.cerrado().set(true);
+            return;
+        } finally {
+            suscriptor.programado().set(false);
+        }
+        // Un evento encolado (o una desconexión) entre el último poll y el set(false) no se pierde
+        if (suscriptor.cerrado().get() || !suscriptor.cola().isEmpty()) {
+            programar(suscriptor);
+        }
+    }
+
+    private void enviar(Suscriptor suscriptor, Set<DataWithMediaType> evento) throws IOException {
+        suscriptor.enviandoDesde().set(System.nanoTime());
+        enviando.add(suscriptor);
+        try {
+            suscriptor.emitter().send(evento);
+        } finally {
+            enviando.remove(suscriptor);
+            if (suscriptor.enviandoDesde().getAndSet(LIBRE) == ATASCADO_CON_RELEVO) {
+                ajustarRelevos(-1);
+            }
+        }
+    }
+
+    // El emisor lo cierra el hilo que lo vacía: si hay un envío bloqueado en un cliente lento,
+    // complete() esperaría a que terminase y dejaría otro hilo del pool parado
+    private boolean desconectar(Suscriptor suscriptor) {
+        if (!suscriptores.remove(suscriptor)) return false;
+        suscriptor.cerrado().set(true);
+        suscriptor.cola().clear();
+        programar(suscriptor);
+        return true;
+    }
+
+    @PreDestroy
+    public void detener() {
+        suscriptores.forEach(suscriptor -> suscriptor.emitter().complete());
+        suscriptores.clear();
+        envios.shutdown();
+    }
+
+    private record Suscriptor(SseEmitter emitter, BlockingQueue<Set<DataWithMediaType>> cola,
+                              AtomicBoolean programado, AtomicBoolean cerrado, AtomicLong enviandoDesde) {
+        Suscriptor(SseEmitter emitter, BlockingQueue<Set<DataWithMediaType>> cola) {
+            this(emitter, cola, new AtomicBoolean(), new AtomicBoolean(), new AtomicLong(LIBRE));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.tienda.admin.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Resuelve y entrega los ficheros de /uploads/**.
+ * <p>
+ * Los nombres de fichero son un SHA-256 (almacén por contenido) o un UUID, y nunca se
+ * reutilizan para otro contenido, así que el ETag sale del propio nombre y las respuestas
+ * se pueden cachear como inmutables. Los ficheros pequeños más pedidos se guardan en una
+ * caché en memoria acotada por bytes; el resto se copia del disco al socket.
+ */
+@Slf4j
+@Service
+public class EntregaImagenesService {
+
+    // <sha256>.ext o <sha256>_variante.jpg
+    private static final Pattern NOMBRE_POR_CONTENIDO = Pattern.compile("^([0-9a-f]{64})(_[a-z]+)?\\.[a-z0-9]+$");
+
+    private final Path raiz = Paths.get("uploads").toAbsolutePath().normalize();
+
+    private final Cache<String, byte[]> calientes;
+    // ETag de ficheros antiguos (nombre UUID): se calcula una vez leyendo el contenido
+    private final Cache<String, String> etagsCalculados = Caffeine.newBuilder().maximumSize(10_000).build();
+
+    private final int maxBytesCaliente;
+
+    public EntregaImagenesService(@Value("${imagenes.entrega.cache-max-bytes:33554432}") long cacheMaxBytes,
+                                  @Value("${imagenes.entrega.fichero-cache-max-bytes:131072}") int maxBytesCaliente) {
+        this.maxBytesCaliente = maxBytesCaliente;
+        this.calientes = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((String clave, byte[] datos) -> datos.length)
+                .recordStats()
+                .build();
+    }
+
+    /** Fichero bajo uploads/ para la ruta relativa pedida, o null si no existe o sale de la raíz. */
+    public Archivo resolver(String rutaRelativa) throws IOException {
+        Path fichero = raiz.resolve(rutaRelativa).normalize();
+        if (!fichero.startsWith(raiz) || !Files.isRegularFile(fichero)) return null;
+
+        BasicFileAttributes atributos = Files.readAttributes(fichero, BasicFileAttributes.class);
+        long modificado = atributos.lastModifiedTime().toMillis();
+        return new Archivo(fichero, atributos.size(), modificado, etag(fichero, atributos.size(), modificado));
+    }
+
+    /** Copia el rango [inicio, fin] (inclusive) del fichero a la salida. */
+    public void escribir(Archivo archivo, long inicio, long fin, OutputStream salida) throws IOException {
+        long longitud = fin - inicio + 1;
+
+        if (archivo.tamano() <= maxBytesCaliente) {
+            byte[] datos = calientes.get(clave(archivo), k -> leerCompleto(archivo.ruta()));
+            salida.write(datos, (int) inicio, (int) longitud);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(archivo.ruta(), StandardOpenOption.READ)) {
+            WritableByteChannel destino = Channels.newChannel(salida);
+            long enviado = 0;
+            while (enviado < longitud) {
+                long n = canal.transferTo(inicio + enviado, longitud - enviado, destino);
+                if (n <= 0) break;
+                enviado += n;
+            }
+        }
+    }
+
+    public boolean esCacheable(Archivo archivo) {
+        return archivo.tamano() <= maxBytesCaliente;
+    }
+
+    public Cache<String, byte[]> getCacheCalientes() {
+        return calientes;
+    }
+
+    private String etag(Path fichero, long tamano, long modificado) {
+        var coincidencia = NOMBRE_POR_CONTENIDO.matcher(fichero.getFileName().toString());
+        if (coincidencia.matches()) {
+            String sufijo = coincidencia.group(2) == null ? "" : coincidencia.group(2);
+            return "\"" + coincidencia.group(1) + sufijo + "\"";
+        }
+        return etagsCalculados.get(fichero + ":" + tamano + ":" + modificado, k -> "\"" + sha256(fichero) + "\"");
+    }
+
+    private static String clave(Archivo archivo) {
+        return archivo.ruta() + ":" + archivo.modificado();
+    }
+
+    private static byte[] leerCompleto(Path fichero) {
+        try {
+            return Files.readAllBytes(fichero);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String sha256(Path fichero) {
+        try (InputStream entrada = new DigestInputStream(Files.newInputStream(fichero), MessageDigest.getInstance("SHA-256"))) {
+            entrada.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(((DigestInputStream) entrada).getMessageDigest().digest());
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo calcular el ETag de " + fichero.getFileName(), e);
+        }
+    }
+
+    public record Archivo(Path ruta, long tamano, long modificado, String etag) {}
+}
@@ -1,49 +1,179 @@
 package com.tienda.admin.service;
 
+import com.tienda.admin.service.AlmacenImagenes.ImagenGuardada;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.apache.commons.io.FilenameUtils;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
 public class FileUploadService {
     
+    public static final long TAMANO_MAXIMO = 5 * 1024 * 1024;
+    
     private final Path uploadPath = Paths.get("uploads");
     
+    @Autowired
+    private AlmacenImagenes almacenImagenes;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${imagenes.subida.hilos:4}")
+    private int hilosSubida;
+    
+    @Value("${imagenes.subida.cola:32}")
+    private int colaSubida;
+    
+    @Value("${imagenes.subida.max-archivos:10}")
+    private int maxArchivosLote;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean hilosVirtuales;
+    
+    // Subidas en lote: cada fichero se valida y guarda en paralelo en este pool.
+    // Con la cola llena la tarea la ejecuta el propio hilo de la petición (frena al cliente).
+    // Con hilos virtuales, un hilo por fichero y como mucho hilosSubida a la vez.
+    private Executor executorSubidas;
+    
+    private Timer tiempoSubida;
+    private DistributionSummary bytesSubidos;
+    private Counter rechazadas;
+    
     @PostConstruct
     public void init() {
+        tiempoSubida = Timer.builder("tienda.uploads.duracion")
+                .description("Lectura, hash y escritura a disco de una imagen")
+                .register(meterRegistry);
+        bytesSubidos = DistributionSummary.builder("tienda.uploads.bytes")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        rechazadas = Counter.builder("tienda.uploads.rechazadas")
+                .description("Subidas rechazadas por tipo, tamaño o archivo vacío")
+                .register(meterRegistry);
+        
+        executorSubidas = crearExecutorSubidas();
+        
         try {
             if (!Files.exists(uploadPath)) {
                 Files.createDirectories(uploadPath);
-                System.out.println("✅ Directorio 'uploads' creado en: " + uploadPath.toAbsolutePath());
+                log.info("✅ Directorio 'uploads' creado en: {}", uploadPath.toAbsolutePath());
             }
         } catch (IOException e) {
-            System.err.println("⚠️  No se pudo crear el directorio 'uploads': " + e.getMessage());
+            log.warn("⚠️ No se pudo crear el directorio 'uploads': {}", e.getMessage());
         }
     }
     
     public String guardarImagen(MultipartFile archivo) throws IOException {
-        validarArchivo(archivo);
+        try {
+            validarArchivo(archivo);
+        } catch (IllegalArgumentException e) {
+            rechazadas.increment();
+            throw e;
+        }
         
-        String nombreOriginal = archivo.getOriginalFilename();
-        String extension = FilenameUtils.getExtension(nombreOriginal).toLowerCase();
-        String nombreUnico = UUID.randomUUID().toString() + "." + extension;
+        // Se guarda por contenido (SHA-256): subir dos veces la misma foto no duplica bytes.
+        // Las variantes se generan en segundo plano solo para contenido nuevo.
+        try (InputStream contenido = archivo.getInputStream()) {
+            return guardarImagen(contenido).ruta();
+        }
+    }
+    
+    /**
+     * Guarda una imagen leída en streaming. El tipo se comprueba por los bytes iniciales
+     * y el límite de tamaño mientras se copia, sin esperar a tener el fichero completo.
+     */
+    public ImagenGuardada guardarImagen(InputStream contenido) throws IOException {
+        long inicio = System.nanoTime();
+        ImagenGuardada guardada;
+        try {
+            guardada = almacenImagenes.guardar(contenido, TAMANO_MAXIMO);
+        } catch (IllegalArgumentException e) {
+            rechazadas.increment();
+            throw e;
+        }
+        tiempoSubida.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        bytesSubidos.record(guardada.tamano());
         
-        Path destino = uploadPath.resolve(nombreUnico);
-        Files.copy(archivo.getInputStream(), destino);
+        log.debug("Imagen guardada: {} ({} bytes)", guardada.ruta(), guardada.tamano());
+        return guardada;
+    }
+    
+    /**
+     * Guarda varias imágenes en paralelo. Cada fichero es independiente: los que fallan
+     * se informan en su resultado sin afectar a los que ya se han guardado.
+     * Los resultados mantienen el orden de los archivos recibidos.
+     */
+    public List<ResultadoSubida> guardarImagenes(List<MultipartFile> archivos) {
+        if (archivos == null || archivos.isEmpty()) {
+            throw new IllegalArgumentException("No se envió ningún archivo");
+        }
+        if (archivos.size() > maxArchivosLote) {
+            throw new IllegalArgumentException("Demasiados archivos. Máximo " + maxArchivosLote + " por petición");
+        }
         
-        System.out.println("✅ Imagen guardada: " + nombreUnico);
+        // El requestId (y el muestreo de debug) de la petición viajan a los hilos del pool
+        Map<String, String> contexto = MDC.getCopyOfContextMap();
+        List<CompletableFuture<ResultadoSubida>> tareas = archivos.stream()
+                .map(archivo -> CompletableFuture.supplyAsync(() -> guardarEnLote(archivo, contexto), executorSubidas))
+                .toList();
         
-        return "/uploads/" + nombreUnico;
+        return tareas.stream().map(CompletableFuture::join).toList();
+    }
+    
+    private ResultadoSubida guardarEnLote(MultipartFile archivo, Map<String, String> contexto) {
+        // Con CallerRunsPolicy la tarea puede ejecutarse en el hilo de la petición:
+        // se restaura su MDC al terminar en lugar de borrarlo
+        Map<String, String> anterior = MDC.getCopyOfContextMap();
+        if (contexto != null) MDC.setContextMap(contexto);
+        try {
+            return guardarEnLote(archivo);
+        } finally {
+            if (anterior != null) MDC.setContextMap(anterior);
+            else MDC.clear();
+        }
     }
     
-    private void validarArchivo(MultipartFile archivo) throws IOException {
+    private ResultadoSubida guardarEnLote(MultipartFile archivo) {
+        String nombre = archivo.getOriginalFilename();
+        try {
+            String ruta = guardarImagen(archivo);
+            return new ResultadoSubida(nombre, true, ruta, archivo.getSize(), "Imagen subida correctamente");
+        } catch (IllegalArgumentException e) {
+            return new ResultadoSubida(nombre, false, null, archivo.getSize(), e.getMessage());
+        } catch (Exception e) {
+            log.error("❌ Error subiendo {}: {}", nombre, e.getMessage());
+            return new ResultadoSubida(nombre, false, null, archivo.getSize(), "Error al subir imagen: " + e.getMessage());
+        }
+    }
+    
+    void validarArchivo(MultipartFile archivo) throws IOException {
         if (archivo == null || archivo.isEmpty()) {
             throw new IllegalArgumentException("El archivo está vacío");
         }
@@ -68,9 +198,8 @@ public class FileUploadService {
             throw new IllegalArgumentException("Formato no soportado. Use: JPG, PNG, GIF, WEBP, BMP");
         }
         
-        long maxSize = 5 * 1024 * 1024;
-        if (archivo.getSize() > maxSize) {
-            throw new IllegalArgumentException("La imagen es demasiado grande. Máximo 5MB");
+        if (archivo.getSize() > TAMANO_MAXIMO) {
+            throw new AlmacenImagenes.ImagenDemasiadoGrandeException(TAMANO_MAXIMO);
         }
     }
     
@@ -80,17 +209,15 @@ public class FileUploadService {
         }
         
         try {
-            String nombreArchivo = rutaImagen.substring(rutaImagen.lastIndexOf("/") + 1);
-            Path archivoPath = uploadPath.resolve(nombreArchivo);
-            
-            if (Files.exists(archivoPath)) {
-                Files.delete(archivoPath);
-                System.out.println("✅ Imagen eliminada: " + nombreArchivo);
-                return true;
+            // Con almacenamiento por contenido un fichero puede ser compartido:
+            // solo se borra si ningún producto lo referencia
+            boolean eliminado = almacenImagenes.eliminarSiSinUso(rutaImagen);
+            if (eliminado) {
+                log.info("🗑️ Imagen eliminada: {}", rutaImagen);
             }
-            return false;
+            return eliminado;
         } catch (Exception e) {
-            System.err.println("❌ Error eliminando imagen: " + e.getMessage());
+            log.error("❌ Error eliminando imagen {}: {}", rutaImagen, e.getMessage());
             return false;
         }
     }
@@ -98,4 +225,31 @@ public class FileUploadService {
     public String getUploadDirectory() {
         return uploadPath.toAbsolutePath().toString();
     }
+    
+    // Los hilos virtuales necesitan Java 21; en versiones anteriores se ignora la opción
+    private Executor crearExecutorSubidas() {
+        if (hilosVirtuales && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            // Al llegar al límite, submit() espera a que acabe otra subida: la misma
+            // contención que CallerRunsPolicy, sin ocupar un hilo de plataforma
+            SimpleAsyncTaskExecutor virtuales = new SimpleAsyncTaskExecutor("subidas-");
+            virtuales.setVirtualThreads(true);
+            virtuales.setConcurrencyLimit(hilosSubida);
+            return virtuales;
+        }
+        return new ThreadPoolExecutor(hilosSubida, hilosSubida, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(colaSubida),
+                new CustomizableThreadFactory("subidas-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    
+    @PreDestroy
+    public void detener() {
+        if (executorSubidas instanceof ThreadPoolExecutor pool) {
+            pool.shutdown();
+        } else if (executorSubidas instanceof SimpleAsyncTaskExecutor virtuales) {
+            virtuales.close();
+        }
+    }
+    
+    public record ResultadoSubida(String nombre, boolean success, String ruta, long tamaño, String message) {}
 }
@@ -0,0 +1,279 @@
+package com.tienda.admin.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.tienda.admin.config.CacheConfig;
+import com.tienda.admin.dto.ProductoDTO;
+import com.tienda.admin.model.Producto;
+import com.tienda.admin.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Importación y exportación masiva del catálogo en CSV o JSON lines.
+ * <p>
+ * La entrada se procesa fila a fila sin cargarla entera en memoria. Las filas válidas
+ * se insertan con JDBC batch (el id lo asigna la columna identity de PostgreSQL, así
+ * que no hace falta un round trip por fila como con Hibernate e IDENTITY). Si un lote
+ * falla se reintenta fila a fila para informar solo de las filas con error.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImportacionProductosService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO productos (nombre, descripcion, precio, categoria, oferta_especial, imagen, img, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String[] COLUMNAS_CSV = {
+            "id", "nombre", "descripcion", "precio", "categoria", "ofertaEspecial", "imagen"
+    };
+
+    // Límite de errores detallados en la respuesta; el total se cuenta siempre
+    private static final int MAX_ERRORES_REPORTADOS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductoService productoService;
+    private final VersionCatalogo versionCatalogo;
+    private final DifusionCambiosProductos difusionCambios;
+    private final ProductoRepository productoRepository;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${catalogo.importacion.tamano-lote:500}")
+    private int tamañoLote;
+
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.CACHE_LISTA_PRODUCTOS, allEntries = true),
+        @CacheEvict(cacheNames = CacheConfig.CACHE_CATEGORIAS, allEntries = true)
+    })
+    public ResultadoImportacion importarCsv(InputStream entrada) throws IOException {
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        List<FilaImportada> lote = new ArrayList<>(tamañoLote);
+        long inicio = System.currentTimeMillis();
+
+        CSVFormat formato = CSVFormat.DEFAULT.builder()
+                .setHeader()
+                .setSkipHeaderRecord(true)
+                .setIgnoreHeaderCase(true)
+                .setTrim(true)
+                .build();
+
+        try (Reader reader = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+             CSVParser parser = formato.parse(reader)) {
+
+            for (CSVRecord registro : parser) {
+                // +1 por la fila de cabecera
+                long fila = registro.getRecordNumber() + 1;
+                resultado.procesadas++;
+                try {
+                    procesarFila(new FilaImportada(fila, desdeCsv(registro)), lote, resultado);
+                } catch (RuntimeException e) {
+                    resultado.registrarError(fila, e.getMessage());
+                }
+            }
+        } catch (UncheckedIOException | IllegalStateException e) {
+            // CSV mal formado (comillas sin cerrar, etc.): se conserva lo importado hasta aquí
+            resultado.registrarError(resultado.procesadas + 2, "CSV mal formado: " + e.getMessage());
+        }
+
+        return finalizar(lote, resultado, inicio);
+    }
+
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.CACHE_LISTA_PRODUCTOS, allEntries = true),
+        @CacheEvict(cacheNames = CacheConfig.CACHE_CATEGORIAS, allEntries = true)
+    })
+    public ResultadoImportacion importarNdjson(InputStream entrada) throws IOException {
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        List<FilaImportada> lote = new ArrayList<>(tamañoLote);
+        long inicio = System.currentTimeMillis();
+        ObjectReader lector = objectMapper.readerFor(ProductoDTO.class);
+
+        try (BufferedReader lineas = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            String linea;
+            long fila = 0;
+            while ((linea = lineas.readLine()) != null) {
+                fila++;
+                if (linea.isBlank()) continue;
+
+                resultado.procesadas++;
+                try {
+                    ProductoDTO dto = lector.readValue(linea);
+                    procesarFila(new FilaImportada(fila, dto), lote, resultado);
+                } catch (JsonProcessingException e) {
+                    resultado.registrarError(fila, "JSON inválido: " + e.getOriginalMessage());
+                } catch (RuntimeException e) {
+                    resultado.registrarError(fila, e.getMessage());
+                }
+            }
+        }
+
+        return finalizar(lote, resultado, inicio);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportarCsv(OutputStream salida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setHeader(COLUMNAS_CSV).build());
+
+        try (Stream<Producto> productos = productoRepository.streamTodosOrdenados()) {
+            Iterator<Producto> it = productos.iterator();
+            while (it.hasNext()) {
+                Producto p = it.next();
+                printer.printRecord(p.getId(), p.getNombre(), p.getDescripcion(), p.getPrecio(),
+                        p.getCategoria(), p.getOfertaEspecial(), p.getImagen());
+                entityManager.detach(p);
+            }
+        }
+        // No se cierra: el stream de la respuesta lo gestiona el contenedor
+        printer.flush();
+    }
+
+    public void exportarNdjson(OutputStream salida) throws IOException {
+        productoService.escribirProductosNdjson(salida, null);
+    }
+
+    private void procesarFila(FilaImportada fila, List<FilaImportada> lote, ResultadoImportacion resultado) {
+        productoService.validarProducto(fila.producto());
+
+        lote.add(fila);
+        if (lote.size() >= tamañoLote) {
+            vaciarLote(lote, resultado);
+        }
+    }
+
+    private ResultadoImportacion finalizar(List<FilaImportada> lote, ResultadoImportacion resultado, long inicio) {
+        vaciarLote(lote, resultado);
+        resultado.duracionMs = System.currentTimeMillis() - inicio;
+
+        if (resultado.importadas > 0) {
+            // Los ids los asigna la base de datos: se reconstruye el índice de búsqueda una vez
+            productoService.reconstruirIndiceBusqueda();
+            difusionCambios.publicar(DifusionCambiosProductos.RECARGAR, null, null);
+        }
+
+        log.info("📦 Importación terminada: {} procesadas, {} importadas, {} errores en {} ms",
+                resultado.procesadas, resultado.importadas, resultado.totalErrores, resultado.duracionMs);
+        return resultado;
+    }
+
+    private void vaciarLote(List<FilaImportada> lote, ResultadoImportacion resultado) {
+        if (lote.isEmpty()) return;
+
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        long importadasAntes = resultado.importadas;
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, lote, lote.size(),
+                            (ps, fila) -> asignarParametros(ps, fila.producto(), ahora)));
+            resultado.importadas += lote.size();
+        } catch (DataAccessException e) {
+            // Algún registro viola una restricción: se aíslan las filas culpables
+            for (FilaImportada fila : lote) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> asignarParametros(ps, fila.producto(), ahora));
+                    resultado.importadas++;
+                } catch (DataAccessException ex) {
+                    resultado.registrarError(fila.numero(), ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        if (resultado.importadas > importadasAntes) {
+            versionCatalogo.refrescar();
+        }
+        lote.clear();
+    }
+
+    private void asignarParametros(PreparedStatement ps, ProductoDTO dto, Timestamp ahora) throws SQLException {
+        ps.setString(1, dto.getNombre().trim());
+        ps.setString(2, dto.getDescripcion());
+        ps.setBigDecimal(3, dto.getPrecio());
+        ps.setString(4, dto.getCategoria());
+        ps.setBoolean(5, dto.getOfertaEspecial() != null ? dto.getOfertaEspecial() : false);
+        ps.setString(6, dto.getImagen());
+        ps.setString(7, dto.getImagen());
+        ps.setTimestamp(8, ahora);
+        ps.setTimestamp(9, ahora);
+    }
+
+    private ProductoDTO desdeCsv(CSVRecord registro) {
+        ProductoDTO dto = new ProductoDTO();
+        dto.setNombre(valor(registro, "nombre"));
+        dto.setDescripcion(valor(registro, "descripcion"));
+        dto.setCategoria(valor(registro, "categoria"));
+        dto.setImagen(valor(registro, "imagen"));
+
+        String precio = valor(registro, "precio");
+        if (precio != null) {
+            try {
+                dto.setPrecio(new BigDecimal(precio.replace(',', '.')));
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("Precio inválido: " + precio);
+            }
+        }
+
+        String oferta = valor(registro, "ofertaEspecial");
+        dto.setOfertaEspecial(oferta != null && (oferta.equalsIgnoreCase("true") || oferta.equals("1")
+                || oferta.equalsIgnoreCase("si") || oferta.equalsIgnoreCase("sí")));
+        return dto;
+    }
+
+    private String valor(CSVRecord registro, String columna) {
+        if (!registro.isMapped(columna) || !registro.isSet(columna)) return null;
+        String valor = registro.get(columna);
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private record FilaImportada(long numero, ProductoDTO producto) {}
+
+    @Data
+    public static class ResultadoImportacion {
+        private long procesadas;
+        private long importadas;
+        private long totalErrores;
+        private long duracionMs;
+        private List<ErrorFila> errores = new ArrayList<>();
+
+        void registrarError(long fila, String mensaje) {
+            totalErrores++;
+            if (errores.size() < MAX_ERRORES_REPORTADOS) {
+                errores.add(new ErrorFila(fila, mensaje));
+            }
+        }
+    }
+
+    public record ErrorFila(long fila, String mensaje) {}
+}
@@ -0,0 +1,312 @@
+package com.tienda.admin.service;
+
+import com.tienda.admin.dto.ProductoDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria sobre nombre, descripción y categoría de los productos.
+ * <p>
+ * Los términos se normalizan en minúsculas, sin acentos ("café" → "cafe") y sin
+ * palabras vacías del español. Cada palabra se indexa tal cual y con sus posibles
+ * singulares ("flores" → "flore", "flor"), y los términos de la consulta se expanden
+ * igual, así que plural y singular se encuentran en los dos sentidos. El último término
+ * de la consulta, tal como se ha escrito, se busca además como prefijo para el
+ * autocompletado del buscador.
+ * El resultado se ordena por relevancia (tf-idf ponderado por campo).
+ * <p>
+ * Una reconstrucción llena un índice nuevo y lo sustituye de una vez; las altas, cambios
+ * y borrados que llegan mientras tanto se anotan y se vuelven a aplicar sobre el nuevo
+ * antes del cambio, así que una página leída antes de un borrado no resucita el producto.
+ */
+@Slf4j
+@Component
+public class IndiceBusquedaProductos {
+
+    private static final Locale ES = new Locale("es");
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final float PESO_NOMBRE = 3.0f;
+    private static final float PESO_CATEGORIA = 2.0f;
+    private static final float PESO_DESCRIPCION = 1.0f;
+    // Las coincidencias por prefijo puntúan menos que las exactas
+    private static final double FACTOR_PREFIJO = 0.6;
+
+    private static final Set<String> PALABRAS_VACIAS = Set.of(
+            "a", "al", "con", "de", "del", "el", "en", "es", "la", "las", "lo", "los",
+            "o", "para", "por", "que", "se", "sin", "su", "sus", "un", "una", "unos",
+            "unas", "y"
+    );
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Una sola reconstrucción a la vez (arranque e importación pueden coincidir)
+    private final Lock reconstruccion = new ReentrantLock();
+
+    // Protegidos por lock
+    private Contenido contenido = new Contenido();
+    // id → última versión escrita durante una reconstrucción (null: borrado); null si no hay ninguna
+    private Map<Long, ProductoDTO> cambiosPendientes;
+
+    // Hasta terminar la reconstrucción inicial las búsquedas van a la base de datos
+    private volatile boolean listo = false;
+
+    public boolean isListo() {
+        return listo;
+    }
+
+    public int getDocumentos() {
+        lock.readLock().lock();
+        try {
+            return contenido.documentos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Construye un índice nuevo con los productos que {@code recorrido} entrega al consumidor
+     * y lo pone en uso. Si el recorrido falla se conserva el índice anterior.
+     */
+    public void reconstruir(Consumer<Consumer<ProductoDTO>> recorrido) {
+        reconstruccion.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                cambiosPendientes = new HashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            // El índice nuevo solo lo ve este hilo hasta el cambio
+            Contenido nuevo = new Contenido();
+            recorrido.accept(producto -> {
+                if (producto != null && producto.getId() != null) {
+                    nuevo.indexar(producto, frecuencias(producto));
+                }
+            });
+
+            lock.writeLock().lock();
+            try {
+                cambiosPendientes.forEach((id, producto) -> {
+                    if (producto == null) {
+                        nuevo.quitar(id);
+                    } else {
+                        nuevo.indexar(producto, frecuencias(producto));
+                    }
+                });
+                contenido = nuevo;
+                listo = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("🔎 Índice de búsqueda listo: {} productos, {} términos",
+                    nuevo.documentos.size(), nuevo.postings.size());
+        } finally {
+            lock.writeLock().lock();
+            try {
+                cambiosPendientes = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            reconstruccion.unlock();
+        }
+    }
+
+    public void indexar(ProductoDTO producto) {
+        if (producto == null || producto.getId() == null) return;
+
+        Map<String, Float> frecuencias = frecuencias(producto);
+        lock.writeLock().lock();
+        try {
+            contenido.indexar(producto, frecuencias);
+            if (cambiosPendientes != null) cambiosPendientes.put(producto.getId(), producto);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void eliminar(Long id) {
+        lock.writeLock().lock();
+        try {
+            contenido.quitar(id);
+            if (cambiosPendientes != null) cambiosPendientes.put(id, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca productos cuyo texto contenga todos los términos de la consulta.
+     * Devuelve null si la consulta no tiene términos útiles (solo palabras vacías),
+     * para que el llamador aplique el filtrado normal.
+     */
+    public List<ProductoDTO> buscar(String consulta, String categoria, Boolean ofertaEspecial) {
+        List<String> terminos = tokenizar(consulta);
+        if (terminos.isEmpty()) return null;
+
+        lock.readLock().lock();
+        try {
+            Contenido contenido = this.contenido;
+            double totalDocumentos = Math.max(1, contenido.documentos.size());
+            Map<Long, Double> puntuaciones = null;
+
+            for (int i = 0; i < terminos.size(); i++) {
+                boolean esUltimo = i == terminos.size() - 1;
+                Map<Long, Double> coincidencias = coincidenciasDeTermino(contenido, terminos.get(i), esUltimo, totalDocumentos);
+
+                if (puntuaciones == null) {
+                    puntuaciones = coincidencias;
+                } else {
+                    // Semántica AND: solo sobreviven los productos que contienen todos los términos
+                    puntuaciones.keySet().retainAll(coincidencias.keySet());
+                    puntuaciones.replaceAll((id, valor) -> valor + coincidencias.get(id));
+                }
+                if (puntuaciones.isEmpty()) break;
+            }
+
+            List<Map.Entry<Long, Double>> ordenados = new ArrayList<>(puntuaciones.entrySet());
+            ordenados.sort(Map.Entry.<Long, Double>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey()));
+
+            List<ProductoDTO> resultado = new ArrayList<>();
+            for (Map.Entry<Long, Double> entrada : ordenados) {
+                ProductoDTO dto = contenido.documentos.get(entrada.getKey()).producto();
+                if (categoria != null && !categoria.equals(dto.getCategoria())) continue;
+                if (ofertaEspecial != null && !ofertaEspecial.equals(dto.getOfertaEspecial())) continue;
+                resultado.add(dto);
+            }
+            return resultado;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Un producto puntúa por la mejor de sus coincidencias con el término: "postres" está
+    // indexado también como "postre" y "postr", y no debe contar tres veces
+    private static Map<Long, Double> coincidenciasDeTermino(Contenido contenido, String termino,
+                                                            boolean comoPrefijo, double totalDocumentos) {
+        Map<Long, Double> resultado = new HashMap<>();
+
+        for (String variante : variantes(termino)) {
+            Map<Long, Float> exactas = contenido.postings.get(variante);
+            if (exactas != null) {
+                conservarMejor(resultado, exactas, idf(exactas.size(), totalDocumentos));
+            }
+        }
+
+        if (comoPrefijo) {
+            SortedMap<String, Map<Long, Float>> expansiones =
+                    contenido.postings.subMap(termino, false, termino + Character.MAX_VALUE, false);
+            for (Map<Long, Float> lista : expansiones.values()) {
+                conservarMejor(resultado, lista, idf(lista.size(), totalDocumentos) * FACTOR_PREFIJO);
+            }
+        }
+        return resultado;
+    }
+
+    private static void conservarMejor(Map<Long, Double> destino, Map<Long, Float> lista, double idf) {
+        for (Map.Entry<Long, Float> entrada : lista.entrySet()) {
+            destino.merge(entrada.getKey(), entrada.getValue() * idf, Math::max);
+        }
+    }
+
+    private static double idf(int frecuenciaDocumental, double totalDocumentos) {
+        return Math.log(1 + totalDocumentos / frecuenciaDocumental);
+    }
+
+    private static Map<String, Float> frecuencias(ProductoDTO producto) {
+        Map<String, Float> frecuencias = new HashMap<>();
+        acumular(frecuencias, producto.getNombre(), PESO_NOMBRE);
+        acumular(frecuencias, producto.getCategoria(), PESO_CATEGORIA);
+        acumular(frecuencias, producto.getDescripcion(), PESO_DESCRIPCION);
+        return frecuencias;
+    }
+
+    private static void acumular(Map<String, Float> frecuencias, String texto, float peso) {
+        for (String palabra : tokenizar(texto)) {
+            for (String termino : variantes(palabra)) {
+                frecuencias.merge(termino, peso, Float::sum);
+            }
+        }
+    }
+
+    /** Palabras normalizadas del texto (minúsculas, sin acentos ni palabras vacías), sin recortar. */
+    static List<String> tokenizar(String texto) {
+        if (texto == null || texto.isBlank()) return List.of();
+
+        String plano = Normalizer.normalize(texto.toLowerCase(ES), Normalizer.Form.NFD);
+        plano = MARCAS_DIACRITICAS.matcher(plano).replaceAll("");
+
+        List<String> terminos = new ArrayList<>();
+        for (String token : SEPARADORES.split(plano)) {
+            if (token.isEmpty() || PALABRAS_VACIAS.contains(token)) continue;
+            terminos.add(token);
+        }
+        return terminos;
+    }
+
+    /**
+     * La palabra y sus posibles singulares: "luces" → luces, luce, luz; "flores" → flores,
+     * flore, flor; "postres" → postres, postre, postr. Sin saber cuál es el bueno se
+     * guardan todos; como la consulta se expande igual, "postre" encuentra "Postres" y
+     * "flores" encuentra "Flor".
+     */
+    static Set<String> variantes(String palabra) {
+        int n = palabra.length();
+        if (n <= 3 || palabra.charAt(n - 1) != 's') return Set.of(palabra);
+
+        Set<String> variantes = new LinkedHashSet<>();
+        variantes.add(palabra);
+        variantes.add(palabra.substring(0, n - 1));
+        if (n > 4 && palabra.endsWith("ces")) {
+            variantes.add(palabra.substring(0, n - 3) + "z");
+        }
+        if (n > 4 && palabra.charAt(n - 2) == 'e' && "rlndj".indexOf(palabra.charAt(n - 3)) >= 0) {
+            variantes.add(palabra.substring(0, n - 2));
+        }
+        return variantes;
+    }
+
+    private record Documento(ProductoDTO producto, Set<String> terminos) {}
+
+    // Estructuras de un índice; sin sincronización propia
+    private static final class Contenido {
+        // término → (id producto → frecuencia ponderada por campo)
+        private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+        private final Map<Long, Documento> documentos = new HashMap<>();
+
+        void indexar(ProductoDTO producto, Map<String, Float> frecuencias) {
+            quitar(producto.getId());
+            for (Map.Entry<String, Float> entrada : frecuencias.entrySet()) {
+                postings.computeIfAbsent(entrada.getKey(), k -> new HashMap<>())
+                        .put(producto.getId(), entrada.getValue());
+            }
+            documentos.put(producto.getId(), new Documento(producto, frecuencias.keySet()));
+        }
+
+        void quitar(Long id) {
+            Documento anterior = documentos.remove(id);
+            if (anterior == null) return;
+
+            for (String termino : anterior.terminos()) {
+                Map<Long, Float> lista = postings.get(termino);
+                if (lista != null) {
+                    lista.remove(id);
+                    if (lista.isEmpty()) {
+                        postings.remove(termino);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.tienda.admin.service;
+
+import com.tienda.admin.service.AlmacenIntentosLogin.EstadoIntentos;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Limita los intentos fallidos de login por usuario y por IP de origen.
+ * <p>
+ * Una clave queda bloqueada cuando acumula el máximo de fallos y el último fue hace
+ * menos que la ventana configurada. Las claves inactivas se purgan en segundo plano.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LimitadorIntentosLogin {
+    
+    private final AlmacenIntentosLogin almacen;
+    
+    @Value("${seguridad.login.max-intentos-usuario:5}")
+    private int maxIntentosUsuario;
+    
+    @Value("${seguridad.login.max-intentos-ip:20}")
+    private int maxIntentosIp;
+    
+    @Value("${seguridad.login.ventana:PT15M}")
+    private Duration ventana;
+    
+    public boolean estaBloqueado(String username, String ip) {
+        long ahora = System.currentTimeMillis();
+        return excedido(claveUsuario(username), maxIntentosUsuario, ahora)
+                || (ip != null && excedido(claveIp(ip), maxIntentosIp, ahora));
+    }
+    
+    public void registrarFallo(String username, String ip) {
+        long ahora = System.currentTimeMillis();
+        EstadoIntentos estado = almacen.registrarFallo(claveUsuario(username), ahora, ventana.toMillis());
+        if (ip != null) {
+            almacen.registrarFallo(claveIp(ip), ahora, ventana.toMillis());
+        }
+        
+        log.warn("⚠️ Intento fallido para {}. Intentos restantes: {}",
+                username, Math.max(0, maxIntentosUsuario - estado.fallos()));
+    }
+    
+    // El éxito solo limpia el usuario: la IP conserva sus fallos contra otras cuentas
+    public void registrarExito(String username) {
+        almacen.limpiar(claveUsuario(username));
+    }
+    
+    @Scheduled(fixedDelayString = "${seguridad.login.purga-ms:60000}")
+    public void purgarExpirados() {
+        int purgadas = almacen.purgarExpirados(System.currentTimeMillis(), ventana.toMillis());
+        if (purgadas > 0) {
+            log.debug("Purgadas {} claves de intentos de login", purgadas);
+        }
+    }
+    
+    private boolean excedido(String clave, int maximo, long ahora) {
+        EstadoIntentos estado = almacen.consultar(clave, ahora, ventana.toMillis());
+        if (estado == null || estado.fallos() < maximo) return false;
+        
+        long restanteMs = ventana.toMillis() - (ahora - estado.ultimoFallo());
+        log.warn("🔒 {} bloqueado. Tiempo restante: {} minutos", clave, restanteMs / 60_000 + 1);
+        return true;
+    }
+    
+    private static String claveUsuario(String username) {
+        return "u:" + username.toLowerCase(Locale.ROOT);
+    }
+    
+    private static String claveIp(String ip) {
+        return "ip:" + ip;
+    }
+}
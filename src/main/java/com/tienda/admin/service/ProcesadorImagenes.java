@@ -0,0 +1,326 @@
+package com.tienda.admin.service;
+
+import com.tienda.admin.repository.ImagenAlmacenadaRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Genera versiones redimensionadas de cada imagen subida (miniatura, tarjeta y detalle).
+ * <p>
+ * La imagen se decodifica una sola vez, submuestreando ya al leer cuando el original es
+ * mucho mayor que la variante más grande, y cada variante se obtiene de la anterior.
+ * Las variantes se recodifican como JPEG, lo que descarta EXIF y demás metadatos.
+ * El trabajo se hace en un pool acotado para que la subida responda de inmediato.
+ * <p>
+ * Las variantes escritas se registran en la tabla imagenes y solo esas se anuncian: una
+ * imagen que no se puede decodificar (WebP), que no cupo en la cola o cuyo procesado falló
+ * no ofrece ninguna y el cliente usa la original.
+ */
+@Slf4j
+@Component
+public class ProcesadorImagenes {
+
+    public enum Variante {
+        DETALLE("detail", 1000),
+        TARJETA("card", 400),
+        MINIATURA("thumb", 150);
+
+        private final String sufijo;
+        private final int ladoMaximo;
+
+        Variante(String sufijo, int ladoMaximo) {
+            this.sufijo = sufijo;
+            this.ladoMaximo = ladoMaximo;
+        }
+
+        public String getSufijo() {
+            return sufijo;
+        }
+    }
+
+    private static final String EXTENSION_VARIANTE = ".jpg";
+    private static final float CALIDAD_JPEG = 0.82f;
+
+    private final Path uploadPath = Path.of("uploads");
+    private final ThreadPoolExecutor executor;
+    private final ImagenAlmacenadaRepository imagenRepository;
+
+    // Copia en memoria de imagenes.variantes por ruta (/uploads/...): convertir un producto
+    // no consulta la tabla
+    private final Map<String, Set<Variante>> generadas = new ConcurrentHashMap<>();
+
+    public ProcesadorImagenes(@Value("${imagenes.procesado.hilos:2}") int hilos,
+                              @Value("${imagenes.procesado.cola:100}") int cola,
+                              ImagenAlmacenadaRepository imagenRepository) {
+        this.imagenRepository = imagenRepository;
+        this.executor = new ThreadPoolExecutor(hilos, hilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                new CustomizableThreadFactory("imagenes-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * URLs de las variantes generadas de una imagen subida a /uploads/, con el mismo prefijo
+     * que la original. Vacío para imágenes externas o sin variantes.
+     */
+    public Map<String, String> urlsVariantes(String imagen) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        String ruta = AlmacenImagenes.rutaRelativa(imagen);
+        if (ruta == null) return urls;
+
+        Set<Variante> variantes = generadas.get(ruta);
+        if (variantes == null) return urls;
+
+        // Las imágenes por contenido viven en subdirectorios (uploads/ab/cd/...)
+        int barra = imagen.lastIndexOf('/');
+        String nombre = imagen.substring(barra + 1);
+        String prefijo = imagen.substring(0, barra + 1);
+        for (Variante variante : variantes) {
+            urls.put(variante.getSufijo(), prefijo + nombreVariante(nombre, variante));
+        }
+        return urls;
+    }
+
+    public static String nombreVariante(String nombreOriginal, Variante variante) {
+        int punto = nombreOriginal.lastIndexOf('.');
+        String base = punto > 0 ? nombreOriginal.substring(0, punto) : nombreOriginal;
+        return base + "_" + variante.getSufijo() + EXTENSION_VARIANTE;
+    }
+
+    public static boolean esVariante(String nombreArchivo) {
+        for (Variante variante : Variante.values()) {
+            if (nombreArchivo.endsWith("_" + variante.getSufijo() + EXTENSION_VARIANTE)) return true;
+        }
+        return false;
+    }
+
+    /** Encola la generación de variantes; si el pool está saturado se hará en el próximo arranque. */
+    public void generarVariantesAsync(Path original) {
+        try {
+            executor.execute(() -> generarVariantes(original));
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ Cola de procesado de imágenes llena; variantes de {} pendientes", original.getFileName());
+        }
+    }
+
+    public void eliminarVariantes(Path original) {
+        generadas.remove(rutaPublica(original));
+        for (Variante variante : Variante.values()) {
+            try {
+                Files.deleteIfExists(rutaVariante(original, variante));
+            } catch (IOException e) {
+                log.warn("⚠️ No se pudo eliminar la variante {} de {}", variante.getSufijo(), original.getFileName());
+            }
+        }
+    }
+
+    // Carga las registradas y contrasta con el disco: se generan las de imágenes subidas
+    // antes de existir el procesado, que no cupieron en la cola o cuyos ficheros se perdieron
+    @EventListener(ApplicationReadyEvent.class)
+    public void generarVariantesPendientes() {
+        cargarVariantesRegistradas();
+        if (!Files.isDirectory(uploadPath)) return;
+
+        try (Stream<Path> archivos = Files.walk(uploadPath)) {
+            archivos.filter(Files::isRegularFile)
+                    .filter(p -> !esVariante(p.getFileName().toString()))
+                    .filter(p -> !p.getFileName().toString().endsWith(".tmp"))
+                    .forEach(this::revisarVariantes);
+        } catch (IOException e) {
+            log.warn("⚠️ No se pudo revisar el directorio de uploads: {}", e.getMessage());
+        }
+    }
+
+    void cargarVariantesRegistradas() {
+        for (Object[] fila : imagenRepository.findVariantesGeneradas()) {
+            generadas.put((String) fila[0], leerSufijos((String) fila[1]));
+        }
+    }
+
+    private void revisarVariantes(Path original) {
+        Set<Variante> enDisco = EnumSet.noneOf(Variante.class);
+        for (Variante variante : Variante.values()) {
+            if (Files.exists(rutaVariante(original, variante))) enDisco.add(variante);
+        }
+
+        if (enDisco.size() < Variante.values().length) {
+            generadas.remove(rutaPublica(original));
+            generarVariantesAsync(original);
+        } else if (!enDisco.equals(generadas.get(rutaPublica(original)))) {
+            registrar(original, enDisco);
+        }
+    }
+
+    void generarVariantes(Path original) {
+        long inicio = System.currentTimeMillis();
+        Set<Variante> escritas = EnumSet.noneOf(Variante.class);
+        try {
+            BufferedImage imagen = leer(original, Variante.DETALLE.ladoMaximo);
+            if (imagen == null) {
+                log.warn("⚠️ Formato de imagen no decodificable: {}", original.getFileName());
+                return;
+            }
+
+            // De mayor a menor: cada variante parte de la anterior
+            BufferedImage actual = aRgb(imagen);
+            for (Variante variante : Variante.values()) {
+                actual = redimensionar(actual, variante.ladoMaximo);
+                escribirJpeg(actual, rutaVariante(original, variante));
+                escritas.add(variante);
+            }
+            log.debug("Variantes de {} generadas en {} ms", original.getFileName(), System.currentTimeMillis() - inicio);
+        } catch (Exception e) {
+            log.error("🔥 Error generando variantes de {}: {}", original.getFileName(), e.getMessage());
+        }
+        if (!escritas.isEmpty()) {
+            registrar(original, escritas);
+        }
+    }
+
+    // Si la fila aún no existe (ficheros anteriores al almacén) solo queda en memoria; el
+    // próximo arranque la vuelve a registrar
+    private void registrar(Path original, Set<Variante> variantes) {
+        String ruta = rutaPublica(original);
+        generadas.put(ruta, variantes);
+        try {
+            imagenRepository.registrarVariantes(ruta, variantes.stream()
+                    .map(Variante::getSufijo)
+                    .collect(Collectors.joining(",")));
+        } catch (Exception e) {
+            log.warn("⚠️ No se pudieron registrar las variantes de {}: {}", ruta, e.getMessage());
+        }
+    }
+
+    private static Set<Variante> leerSufijos(String sufijos) {
+        Set<Variante> variantes = EnumSet.noneOf(Variante.class);
+        for (Variante variante : Variante.values()) {
+            if (("," + sufijos + ",").contains("," + variante.getSufijo() + ",")) variantes.add(variante);
+        }
+        return variantes;
+    }
+
+    private String rutaPublica(Path original) {
+        return AlmacenImagenes.PREFIJO_URL + uploadPath.relativize(original).toString().replace(File.separatorChar, '/');
+    }
+
+    private Path rutaVariante(Path original, Variante variante) {
+        return original.resolveSibling(nombreVariante(original.getFileName().toString(), variante));
+    }
+
+    // Decodifica con submuestreo entero cuando el original es al menos el doble de lo necesario
+    private BufferedImage leer(Path archivo, int ladoObjetivo) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(archivo.toFile())) {
+            if (entrada == null) return null;
+
+            Iterator<ImageReader> lectores = ImageIO.getImageReaders(entrada);
+            if (!lectores.hasNext()) return null;
+
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int lado = Math.max(lector.getWidth(0), lector.getHeight(0));
+                int paso = Math.max(1, lado / (ladoObjetivo * 2));
+
+                ImageReadParam param = lector.getDefaultReadParam();
+                param.setSourceSubsampling(paso, paso, 0, 0);
+                return lector.read(0, param);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    // JPEG no admite transparencia: se compone sobre fondo blanco
+    private BufferedImage aRgb(BufferedImage imagen) {
+        if (imagen.getType() == BufferedImage.TYPE_INT_RGB) return imagen;
+
+        BufferedImage rgb = new BufferedImage(imagen.getWidth(), imagen.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, imagen.getWidth(), imagen.getHeight());
+            g.drawImage(imagen, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    private BufferedImage redimensionar(BufferedImage imagen, int ladoMaximo) {
+        int ancho = imagen.getWidth();
+        int alto = imagen.getHeight();
+        if (Math.max(ancho, alto) <= ladoMaximo) return imagen;
+
+        double escala = (double) ladoMaximo / Math.max(ancho, alto);
+        int nuevoAncho = Math.max(1, (int) Math.round(ancho * escala));
+        int nuevoAlto = Math.max(1, (int) Math.round(alto * escala));
+
+        BufferedImage destino = new BufferedImage(nuevoAncho, nuevoAlto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = destino.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(imagen, 0, 0, nuevoAncho, nuevoAlto, null);
+        } finally {
+            g.dispose();
+        }
+        return destino;
+    }
+
+    // Se escribe a un temporal y se renombra: nunca se sirve una variante a medias
+    private void escribirJpeg(BufferedImage imagen, Path destino) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path temporal = destino.resolveSibling(destino.getFileName() + ".tmp");
+
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(temporal.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(CALIDAD_JPEG);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+
+            writer.setOutput(salida);
+            writer.write(null, new IIOImage(imagen, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @PreDestroy
+    public void detener() {
+        executor.shutdown();
+    }
+}
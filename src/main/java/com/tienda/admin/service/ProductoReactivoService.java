@@ -0,0 +1,161 @@
+package com.tienda.admin.service;
+
+import com.tienda.admin.config.CacheConfig;
+import com.tienda.admin.dto.PaginaProductosDTO;
+import com.tienda.admin.dto.ProductoDTO;
+import com.tienda.admin.model.Producto;
+import com.tienda.admin.service.ProductoService.CursorProducto;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lectura del catálogo con R2DBC, sin bloquear hilos mientras se espera a PostgreSQL.
+ * <p>
+ * Las reglas son las de {@link ProductoService} (tamaño de página, cursores, búsqueda por
+ * índice con LIKE de respaldo, conversión a DTO) y se comparten las mismas cachés: solo
+ * cambia cómo se llega a la base de datos. Las escrituras siguen pasando por JPA.
+ */
+@Service
+@Profile("reactivo")
+public class ProductoReactivoService {
+    
+    private static final String COLUMNAS = "SELECT id, nombre, descripcion, precio, categoria, oferta_especial, imagen FROM productos";
+    // Filas pedidas al servidor por tanda: la demanda del suscriptor regula el resto
+    private static final int FILAS_POR_TANDA = 500;
+    
+    @Autowired
+    private DatabaseClient databaseClient;
+    
+    @Autowired
+    private ProductoService productoService;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private VersionCatalogo versionCatalogo;
+    
+    /** Catálogo completo ordenado por nombre, emitido fila a fila según la demanda. */
+    public Flux<ProductoDTO> obtenerTodosLosProductos() {
+        return databaseClient.sql(COLUMNAS + " ORDER BY nombre ASC, id ASC")
+                .filter(sentencia -> sentencia.fetchSize(FILAS_POR_TANDA))
+                .map(this::aDTO)
+                .all();
+    }
+    
+    public Mono<PaginaProductosDTO> obtenerPaginaProductos(String cursor, Integer limite) {
+        int tamaño = ProductoService.tamañoPagina(limite);
+        
+        // Una fila de más para saber si hay página siguiente, como en ProductoService
+        DatabaseClient.GenericExecuteSpec consulta;
+        if (cursor == null || cursor.isBlank()) {
+            consulta = databaseClient.sql(COLUMNAS + " ORDER BY nombre ASC, id ASC LIMIT :limite");
+        } else {
+            CursorProducto ultimo = ProductoService.decodificarCursor(cursor);
+            consulta = databaseClient.sql(COLUMNAS + " WHERE (nombre, id) > (:nombre, :id)"
+                            + " ORDER BY nombre ASC, id ASC LIMIT :limite")
+                    .bind("nombre", ultimo.nombre())
+                    .bind("id", ultimo.id());
+        }
+        
+        return consulta.bind("limite", tamaño + 1)
+                .map(ProductoReactivoService::aProducto)
+                .all()
+                .collectList()
+                .map(productos -> {
+                    boolean hayMas = productos.size() > tamaño;
+                    List<Producto> pagina = hayMas ? productos.subList(0, tamaño) : productos;
+                    String siguienteCursor = hayMas ? ProductoService.codificarCursor(pagina.get(pagina.size() - 1)) : null;
+                    List<ProductoDTO> dtos = pagina.stream().map(productoService::convertirADTO).toList();
+                    return new PaginaProductosDTO(dtos, tamaño, hayMas, siguienteCursor);
+                });
+    }
+    
+    /** Vacío si el producto no existe. */
+    public Mono<ProductoDTO> obtenerProductoPorId(Long id) {
+        Cache cache = cacheManager.getCache(CacheConfig.CACHE_PRODUCTO);
+        ProductoDTO enCache = cache == null ? null : cache.get(id, ProductoDTO.class);
+        if (enCache != null) {
+            return Mono.just(enCache);
+        }
+        
+        return databaseClient.sql(COLUMNAS + " WHERE id = :id")
+                .bind("id", id)
+                .map(this::aDTO)
+                .one()
+                .doOnNext(dto -> {
+                    if (cache != null) cache.put(id, dto);
+                });
+    }
+    
+    public Flux<ProductoDTO> buscarProductos(String nombre, String categoria, Boolean ofertaEspecial) {
+        // El índice está en memoria: no hay espera de E/S que evitar
+        List<ProductoDTO> resultado = productoService.buscarEnIndice(nombre, categoria, ofertaEspecial);
+        if (resultado != null) {
+            return Flux.fromIterable(resultado);
+        }
+        
+        // Sin términos buscables (solo palabras vacías) o sin coincidencias en el índice se
+        // filtra con LIKE, como en ProductoService
+        String filtroNombre = nombre;
+        List<String> condiciones = new ArrayList<>();
+        if (filtroNombre != null) condiciones.add("LOWER(nombre) LIKE LOWER(CONCAT('%', :nombre, '%'))");
+        if (categoria != null) condiciones.add("categoria = :categoria");
+        if (ofertaEspecial != null) condiciones.add("oferta_especial = :ofertaEspecial");
+        
+        String sql = COLUMNAS + (condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones))
+                + " ORDER BY nombre ASC";
+        DatabaseClient.GenericExecuteSpec consulta = databaseClient.sql(sql);
+        if (filtroNombre != null) consulta = consulta.bind("nombre", filtroNombre);
+        if (categoria != null) consulta = consulta.bind("categoria", categoria);
+        if (ofertaEspecial != null) consulta = consulta.bind("ofertaEspecial", ofertaEspecial);
+        
+        return consulta.map(this::aDTO).all();
+    }
+    
+    @SuppressWarnings("unchecked")
+    public Mono<List<String>> obtenerCategorias() {
+        // Misma entrada que ProductoService.obtenerCategorias (clave = versión del catálogo)
+        VersionCatalogo.Version version = versionCatalogo.actual();
+        Cache cache = cacheManager.getCache(CacheConfig.CACHE_CATEGORIAS);
+        Cache.ValueWrapper enCache = cache == null ? null : cache.get(version);
+        if (enCache != null) {
+            return Mono.just((List<String>) enCache.get());
+        }
+        
+        return databaseClient.sql("SELECT DISTINCT categoria FROM productos WHERE categoria IS NOT NULL ORDER BY categoria")
+                .map(fila -> fila.get("categoria", String.class))
+                .all()
+                .collectList()
+                .doOnNext(categorias -> {
+                    if (cache != null) cache.put(version, categorias);
+                });
+    }
+    
+    private ProductoDTO aDTO(Readable fila) {
+        return productoService.convertirADTO(aProducto(fila));
+    }
+    
+    private static Producto aProducto(Readable fila) {
+        Producto producto = new Producto();
+        producto.setId(fila.get("id", Long.class));
+        producto.setNombre(fila.get("nombre", String.class));
+        producto.setDescripcion(fila.get("descripcion", String.class));
+        producto.setPrecio(fila.get("precio", BigDecimal.class));
+        producto.setCategoria(fila.get("categoria", String.class));
+        producto.setOfertaEspecial(fila.get("oferta_especial", Boolean.class));
+        producto.setImagen(fila.get("imagen", String.class));
+        return producto;
+    }
+}
@@ -1,43 +1,217 @@
 package com.tienda.admin.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tienda.admin.config.CacheConfig;
+import com.tienda.admin.config.JacksonConfig;
+import com.tienda.admin.dto.CambiosProductosDTO;
+import com.tienda.admin.dto.PaginaProductosDTO;
 import com.tienda.admin.dto.ProductoDTO;
 import com.tienda.admin.model.Producto;
+import com.tienda.admin.model.ProductoEliminado;
+import com.tienda.admin.repository.ProductoEliminadoRepository;
 import com.tienda.admin.repository.ProductoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 public class ProductoService {
     
+    public static final int LIMITE_POR_DEFECTO = 50;
+    public static final int LIMITE_MAXIMO = 500;
+    private static final int FLUSH_CADA = 200;
+    private static final int LOTE_INDEXACION = 1000;
+    
     @Autowired
     private ProductoRepository productoRepository;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private IndiceBusquedaProductos indiceBusqueda;
+    
+    @Autowired
+    private AlmacenImagenes almacenImagenes;
+    
+    @Autowired
+    private ProcesadorImagenes procesadorImagenes;
+    
+    @Autowired
+    private VersionCatalogo versionCatalogo;
+    
+    @Autowired
+    private ProductoEliminadoRepository productoEliminadoRepository;
+    
+    @Autowired
+    private DifusionCambiosProductos difusionCambios;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    // Las escrituras fijan updated_at antes de confirmar: la versión devuelta por
+    // obtenerCambios se queda este margen por detrás para no saltarse ninguna
+    @Value("${catalogo.cambios.margen:PT5S}")
+    private Duration margenCambios;
+    
+    @Value("${catalogo.cambios.retencion:P30D}")
+    private Duration retencionBorrados;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Solo se miden los fallos de caché: los aciertos no llegan a ejecutar el método
+    private Timer tiempoListado;
+    private Timer tiempoBusquedaIndice;
+    private Timer tiempoBusquedaBd;
+    private Counter creados;
+    private Counter actualizados;
+    private Counter eliminados;
+    
+    @PostConstruct
+    public void registrarMetricas() {
+        tiempoListado = Timer.builder("tienda.productos.listado")
+                .description("Carga y conversión del catálogo completo")
+                .register(meterRegistry);
+        tiempoBusquedaIndice = meterRegistry.timer("tienda.productos.busqueda", "origen", "indice");
+        tiempoBusquedaBd = meterRegistry.timer("tienda.productos.busqueda", "origen", "bd");
+        creados = meterRegistry.counter("tienda.productos.cambios", "operacion", "crear");
+        actualizados = meterRegistry.counter("tienda.productos.cambios", "operacion", "actualizar");
+        eliminados = meterRegistry.counter("tienda.productos.cambios", "operacion", "eliminar");
+        Gauge.builder("tienda.productos.indice.documentos", indiceBusqueda, IndiceBusquedaProductos::getDocumentos)
+                .description("Productos en el índice de búsqueda")
+                .register(meterRegistry);
+    }
+    
+    // Clave = versión del catálogo: la lista en caché corresponde siempre a su ETag
+    @Cacheable(cacheNames = CacheConfig.CACHE_LISTA_PRODUCTOS, key = "@versionCatalogo.actual()")
     public List<ProductoDTO> obtenerTodosLosProductos() {
-        return productoRepository.findAllByOrderByNombreAsc()
+        return tiempoListado.record(() -> productoRepository.findAllByOrderByNombreAsc()
                 .stream()
+                .map(this::convertirADTO)
+                .collect(Collectors.toList()));
+    }
+    
+    public PaginaProductosDTO obtenerPaginaProductos(String cursor, Integer limite) {
+        int tamaño = tamañoPagina(limite);
+        
+        // Se pide una fila de más para saber si existe página siguiente sin un COUNT(*)
+        List<Producto> productos;
+        if (cursor == null || cursor.isBlank()) {
+            productos = productoRepository.findAllByOrderByNombreAscIdAsc(Limit.of(tamaño + 1));
+        } else {
+            CursorProducto ultimo = decodificarCursor(cursor);
+            productos = productoRepository.findPaginaDespuesDe(ultimo.nombre(), ultimo.id(), Limit.of(tamaño + 1));
+        }
+        
+        boolean hayMas = productos.size() > tamaño;
+        if (hayMas) {
+            productos = productos.subList(0, tamaño);
+        }
+        
+        String siguienteCursor = hayMas ? codificarCursor(productos.get(productos.size() - 1)) : null;
+        List<ProductoDTO> dtos = productos.stream()
                 .map(this::convertirADTO)
                 .collect(Collectors.toList());
+        return new PaginaProductosDTO(dtos, tamaño, hayMas, siguienteCursor);
     }
     
+    /**
+     * Escribe el catálogo completo como NDJSON (un ProductoDTO por línea) leyendo
+     * con un cursor de servidor. Cada entidad se desvincula tras escribirla, por lo
+     * que la memoria usada no depende del tamaño del catálogo. Con {@code campos}
+     * solo se escriben esas propiedades de cada producto (null: todas).
+     */
+    @Transactional(readOnly = true)
+    public void escribirProductosNdjson(OutputStream salida, Set<String> campos) throws IOException {
+        // Sin flush tras cada producto: se vacía cada FLUSH_CADA filas
+        ObjectWriter writer = (campos == null
+                ? objectMapper.writerFor(ProductoDTO.class)
+                : objectMapper.writer(JacksonConfig.soloCampos(campos)).forType(ProductoDTO.class))
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        
+        try (Stream<Producto> productos = productoRepository.streamTodosOrdenados();
+             JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            generador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // El separador de líneas es el '\n' escrito a mano, no el espacio por defecto
+            generador.setRootValueSeparator(null);
+            
+            int escritos = 0;
+            Iterator<Producto> it = productos.iterator();
+            while (it.hasNext()) {
+                Producto producto = it.next();
+                writer.writeValue(generador, convertirADTO(producto));
+                generador.writeRaw('\n');
+                entityManager.detach(producto);
+                
+                if (++escritos % FLUSH_CADA == 0) {
+                    generador.flush();
+                }
+            }
+            generador.flush();
+        }
+    }
+    
+    @Cacheable(CacheConfig.CACHE_PRODUCTO)
     public ProductoDTO obtenerProductoPorId(Long id) {
         Producto producto = productoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
         return convertirADTO(producto);
     }
     
+    // Un producto nuevo solo cambia la lista y, si trae categoría, las categorías
+    @Caching(
+        put = @CachePut(cacheNames = CacheConfig.CACHE_PRODUCTO, key = "#result.id"),
+        evict = {
+            @CacheEvict(cacheNames = CacheConfig.CACHE_LISTA_PRODUCTOS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.CACHE_CATEGORIAS, allEntries = true,
+                        condition = "#productoDTO.categoria != null")
+        }
+    )
     public ProductoDTO crearProducto(ProductoDTO productoDTO) {
         // Validaciones
-        if (productoDTO.getNombre() == null || productoDTO.getNombre().trim().isEmpty()) {
-            throw new RuntimeException("El nombre del producto es requerido");
-        }
-        
-        if (productoDTO.getPrecio() == null || productoDTO.getPrecio().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new RuntimeException("El precio debe ser mayor a 0");
-        }
+        validarProducto(productoDTO);
         
         // Crear entidad
         Producto producto = new Producto();
@@ -49,22 +223,29 @@ public class ProductoService {
         producto.setImagen(productoDTO.getImagen());
         
         Producto productoGuardado = productoRepository.save(producto);
-        return convertirADTO(productoGuardado);
+        versionCatalogo.refrescar();
+        almacenImagenes.cambiarReferencia(null, productoGuardado.getImagen());
+        ProductoDTO resultado = convertirADTO(productoGuardado);
+        indiceBusqueda.indexar(resultado);
+        difusionCambios.publicar(DifusionCambiosProductos.CREADO, resultado.getId(), resultado);
+        creados.increment();
+        return resultado;
     }
     
+    @Caching(
+        put = @CachePut(cacheNames = CacheConfig.CACHE_PRODUCTO, key = "#id"),
+        evict = {
+            @CacheEvict(cacheNames = CacheConfig.CACHE_LISTA_PRODUCTOS, allEntries = true),
+            @CacheEvict(cacheNames = CacheConfig.CACHE_CATEGORIAS, allEntries = true)
+        }
+    )
     public ProductoDTO actualizarProducto(Long id, ProductoDTO productoDTO) {
         // Verificar que existe
         Producto productoExistente = productoRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
         
         // Validaciones
-        if (productoDTO.getNombre() == null || productoDTO.getNombre().trim().isEmpty()) {
-            throw new RuntimeException("El nombre del producto es requerido");
-        }
-        
-        if (productoDTO.getPrecio() == null || productoDTO.getPrecio().compareTo(BigDecimal.ZERO) <= 0) {
-            throw new RuntimeException("El precio debe ser mayor a 0");
-        }
+        validarProducto(productoDTO);
         
         // Actualizar
         productoExistente.setNombre(productoDTO.getNombre());
@@ -72,32 +253,177 @@ public class ProductoService {
         productoExistente.setPrecio(productoDTO.getPrecio());
         productoExistente.setCategoria(productoDTO.getCategoria());
         productoExistente.setOfertaEspecial(productoDTO.getOfertaEspecial() != null ? productoDTO.getOfertaEspecial() : false);
+        String imagenAnterior = productoExistente.getImagen();
         productoExistente.setImagen(productoDTO.getImagen());
         productoExistente.preUpdate();
         
         Producto productoActualizado = productoRepository.save(productoExistente);
-        return convertirADTO(productoActualizado);
+        versionCatalogo.refrescar();
+        almacenImagenes.cambiarReferencia(imagenAnterior, productoActualizado.getImagen());
+        ProductoDTO resultado = convertirADTO(productoActualizado);
+        indiceBusqueda.indexar(resultado);
+        difusionCambios.publicar(DifusionCambiosProductos.ACTUALIZADO, id, resultado);
+        actualizados.increment();
+        return resultado;
     }
     
+    @Caching(evict = {
+        @CacheEvict(cacheNames = CacheConfig.CACHE_PRODUCTO, key = "#id"),
+        @CacheEvict(cacheNames = CacheConfig.CACHE_LISTA_PRODUCTOS, allEntries = true),
+        @CacheEvict(cacheNames = CacheConfig.CACHE_CATEGORIAS, allEntries = true)
+    })
     public void eliminarProducto(Long id) {
-        if (!productoRepository.existsById(id)) {
-            throw new RuntimeException("Producto no encontrado con ID: " + id);
+        Producto producto = productoRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+        // El borrado y su tombstone se confirman juntos
+        transactionTemplate.executeWithoutResult(estado -> {
+            productoRepository.delete(producto);
+            productoEliminadoRepository.save(new ProductoEliminado(id, LocalDateTime.now()));
+        });
+        versionCatalogo.refrescar();
+        // El fichero lo borra el recolector cuando ya no lo usa ningún producto
+        almacenImagenes.cambiarReferencia(producto.getImagen(), null);
+        indiceBusqueda.eliminar(id);
+        difusionCambios.publicar(DifusionCambiosProductos.ELIMINADO, id, null);
+        eliminados.increment();
+    }
+    
+    /**
+     * Cambios del catálogo posteriores a {@code desde} (epoch ms): productos creados o
+     * modificados e ids borrados. La versión devuelta va {@code catalogo.cambios.margen} por
+     * detrás del reloj, así que un mismo producto puede llegar en dos respuestas seguidas;
+     * el cliente debe aplicarlos como reemplazos.
+     */
+    public CambiosProductosDTO obtenerCambios(long desde) {
+        long ahora = System.currentTimeMillis();
+        if (desde < ahora - retencionBorrados.toMillis()) {
+            throw new IllegalStateException("La versión " + desde + " es anterior al historial de borrados ("
+                    + retencionBorrados.toDays() + " días): hay que recargar el catálogo completo");
+        }
+        
+        LocalDateTime momento = LocalDateTime.ofInstant(Instant.ofEpochMilli(desde), ZoneId.systemDefault());
+        List<ProductoDTO> productos = productoRepository.findByUpdatedAtAfterOrderByUpdatedAtAscIdAsc(momento)
+                .stream()
+                .map(this::convertirADTO)
+                .collect(Collectors.toList());
+        List<Long> eliminados = productoEliminadoRepository.findIdsEliminadosDesde(momento);
+        
+        return new CambiosProductosDTO(productos, eliminados, Math.max(desde, ahora - margenCambios.toMillis()));
+    }
+    
+    // Punto de partida de la sincronización para una lista con esta versión del catálogo
+    public long versionSincronizacion(VersionCatalogo.Version version) {
+        return version.escrituraMs() - margenCambios.toMillis();
+    }
+    
+    @Scheduled(fixedDelayString = "${catalogo.cambios.purga-intervalo-ms:3600000}", initialDelay = 60_000)
+    public void purgarBorrados() {
+        int purgados = productoEliminadoRepository.purgarAnterioresA(LocalDateTime.now().minus(retencionBorrados));
+        if (purgados > 0) {
+            log.info("🧹 {} registros de borrado anteriores a {} días eliminados", purgados, retencionBorrados.toDays());
         }
-        productoRepository.deleteById(id);
     }
     
     public List<ProductoDTO> buscarProductos(String nombre, String categoria, Boolean ofertaEspecial) {
-        return productoRepository.buscarProductos(nombre, categoria, ofertaEspecial)
+        List<ProductoDTO> resultado = buscarEnIndice(nombre, categoria, ofertaEspecial);
+        if (resultado != null) {
+            return resultado;
+        }
+        
+        // También llegan aquí una consulta con solo palabras vacías ("de") y una sin coincidencias en el índice
+        return tiempoBusquedaBd.record(() -> productoRepository.buscarProductos(nombre, categoria, ofertaEspecial)
                 .stream()
                 .map(this::convertirADTO)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
     }
     
+    /**
+     * La búsqueda por texto usa el índice invertido; el LIKE queda como respaldo mientras
+     * el índice se reconstruye al arrancar. Devuelve null si hay que ir a la base de datos.
+     * <p>
+     * Sin coincidencias en el índice también se va al LIKE: encuentra subcadenas que el
+     * índice no ve ("ador" en "Procesador"), así que nunca se devuelve menos que antes.
+     */
+    List<ProductoDTO> buscarEnIndice(String nombre, String categoria, Boolean ofertaEspecial) {
+        if (nombre == null || nombre.isBlank() || !indiceBusqueda.isListo()) {
+            return null;
+        }
+        long inicio = System.nanoTime();
+        List<ProductoDTO> resultado = indiceBusqueda.buscar(nombre, categoria, ofertaEspecial);
+        if (resultado == null || resultado.isEmpty()) {
+            return null;
+        }
+        tiempoBusquedaIndice.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        return resultado;
+    }
+    
+    /**
+     * Reconstruye el índice de búsqueda (al arrancar y tras una importación), recorriendo
+     * el catálogo por páginas keyset para no cargarlo entero en memoria. Mientras tanto
+     * las búsquedas siguen usando el índice anterior.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirIndiceBusqueda() {
+        try {
+            indiceBusqueda.reconstruir(indexar -> {
+                List<Producto> pagina = productoRepository.findAllByOrderByNombreAscIdAsc(Limit.of(LOTE_INDEXACION));
+                while (!pagina.isEmpty()) {
+                    pagina.forEach(producto -> indexar.accept(convertirADTO(producto)));
+                    
+                    Producto ultimo = pagina.get(pagina.size() - 1);
+                    pagina = pagina.size() < LOTE_INDEXACION
+                            ? List.of()
+                            : productoRepository.findPaginaDespuesDe(ultimo.getNombre(), ultimo.getId(), Limit.of(LOTE_INDEXACION));
+                }
+            });
+        } catch (Exception e) {
+            // Sin índice la búsqueda sigue funcionando contra la base de datos
+            log.warn("⚠️ No se pudo construir el índice de búsqueda: {}", e.getMessage());
+        }
+    }
+    
+    @Cacheable(cacheNames = CacheConfig.CACHE_CATEGORIAS, key = "@versionCatalogo.actual()")
     public List<String> obtenerCategorias() {
         return productoRepository.findDistinctCategorias();
     }
     
-    private ProductoDTO convertirADTO(Producto producto) {
+    // Reglas comunes a la creación, actualización e importación masiva
+    public void validarProducto(ProductoDTO productoDTO) {
+        if (productoDTO.getNombre() == null || productoDTO.getNombre().trim().isEmpty()) {
+            throw new RuntimeException("El nombre del producto es requerido");
+        }
+        
+        if (productoDTO.getPrecio() == null || productoDTO.getPrecio().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new RuntimeException("El precio debe ser mayor a 0");
+        }
+    }
+    
+    static int tamañoPagina(Integer limite) {
+        return limite == null ? LIMITE_POR_DEFECTO : Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+    }
+    
+    // Cursor opaco: Base64 URL de "id:nombre" del último elemento de la página
+    static String codificarCursor(Producto producto) {
+        String valor = producto.getId() + ":" + producto.getNombre();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    static CursorProducto decodificarCursor(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(':');
+            if (separador <= 0) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new CursorProducto(Long.parseLong(valor.substring(0, separador)), valor.substring(separador + 1));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException y errores de Base64 también son IllegalArgumentException
+            throw new IllegalArgumentException("Cursor inválido: " + cursor);
+        }
+    }
+    
+    ProductoDTO convertirADTO(Producto producto) {
         ProductoDTO dto = new ProductoDTO();
         dto.setId(producto.getId());
         dto.setNombre(producto.getNombre());
@@ -106,6 +432,9 @@ public class ProductoService {
         dto.setCategoria(producto.getCategoria());
         dto.setOfertaEspecial(producto.getOfertaEspecial());
         dto.setImagen(producto.getImagen());
+        dto.setImagenVariantes(procesadorImagenes.urlsVariantes(producto.getImagen()));
         return dto;
     }
+    
+    record CursorProducto(Long id, String nombre) {}
 }
\ No newline at end of file
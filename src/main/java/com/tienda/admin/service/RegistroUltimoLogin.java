@@ -0,0 +1,134 @@
+package com.tienda.admin.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Buffer write-behind de administradores.last_login.
+ * <p>
+ * Los logins correctos solo anotan la fecha en memoria (una entrada por administrador,
+ * conservando la más reciente). Un temporizador, o el umbral de tamaño, vuelca las
+ * entradas en un único UPDATE por lotes. Al apagar se vacía lo pendiente.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RegistroUltimoLogin {
+    
+    // Nunca se retrocede la fecha si ya hay una más reciente (p. ej. desde otra instancia)
+    private static final String UPDATE_SQL =
+            "UPDATE administradores SET last_login = ? WHERE id = ? AND (last_login IS NULL OR last_login < ?)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskScheduler taskScheduler;
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<Long, LocalDateTime> pendientes = new ConcurrentHashMap<>();
+    private final AtomicBoolean vaciando = new AtomicBoolean(false);
+    
+    private Timer tiempoLote;
+    private Counter filasEscritas;
+    private Counter errores;
+    
+    @Value("${seguridad.login.ultimo-login.umbral:100}")
+    private int umbral;
+    
+    @PostConstruct
+    public void registrarMetricas() {
+        tiempoLote = Timer.builder("tienda.auth.ultimo-login.lote")
+                .description("UPDATE por lotes de last_login, correcto o fallido")
+                .register(meterRegistry);
+        filasEscritas = Counter.builder("tienda.auth.ultimo-login.filas")
+                .description("Fechas de último login enviadas a la base de datos")
+                .register(meterRegistry);
+        errores = Counter.builder("tienda.auth.ultimo-login.errores")
+                .description("Vaciados fallidos; sus fechas vuelven al buffer")
+                .register(meterRegistry);
+        Gauge.builder("tienda.auth.ultimo-login.pendientes", pendientes, Map::size)
+                .description("Administradores con fecha de login aún sin escribir")
+                .register(meterRegistry);
+    }
+    
+    public void registrar(Long adminId, LocalDateTime fecha) {
+        pendientes.merge(adminId, fecha, (a, b) -> a.isAfter(b) ? a : b);
+        
+        if (pendientes.size() >= umbral && !vaciando.get()) {
+            // Fuera del hilo de la petición: el login no espera a la base de datos
+            taskScheduler.schedule(this::vaciar, Instant.now());
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${seguridad.login.ultimo-login.intervalo-ms:5000}")
+    public void vaciar() {
+        if (pendientes.isEmpty() || !vaciando.compareAndSet(false, true)) return;
+        
+        List<Object[]> lote = new ArrayList<>();
+        try {
+            for (Long adminId : pendientes.keySet()) {
+                LocalDateTime fecha = pendientes.remove(adminId);
+                if (fecha != null) {
+                    Timestamp ts = Timestamp.valueOf(fecha);
+                    lote.add(new Object[]{ts, adminId, ts});
+                }
+            }
+            if (lote.isEmpty()) return;
+            
+            tiempoLote.record(() -> jdbcTemplate.batchUpdate(UPDATE_SQL, lote));
+            filasEscritas.increment(lote.size());
+        } catch (Exception e) {
+            // Se devuelven al buffer para reintentar en el siguiente ciclo
+            errores.increment();
+            for (Object[] fila : lote) {
+                registrar((Long) fila[1], ((Timestamp) fila[0]).toLocalDateTime());
+            }
+            log.error("🔥 No se pudo guardar last_login de {} administradores: {}", lote.size(), e.getMessage());
+        } finally {
+            vaciando.set(false);
+        }
+    }
+    
+    @PreDestroy
+    public void detener() {
+        // Espera a un vaciado en curso y escribe lo que quede
+        while (vaciando.get()) {
+            Thread.onSpinWait();
+        }
+        vaciar();
+        if (!pendientes.isEmpty()) {
+            log.warn("⚠️ {} fechas de último login no se guardaron al apagar", pendientes.size());
+        }
+    }
+    
+    // Las mismas medidas que exporta Micrometer, para /api/debug/ultimo-login
+    public Map<String, Object> metricas() {
+        return Map.of(
+                "pendientes", pendientes.size(),
+                "vaciados", tiempoLote.count(),
+                "filas_escritas", (long) filasEscritas.count(),
+                "errores", (long) errores.count(),
+                "media_duracion_ms", tiempoLote.mean(TimeUnit.MILLISECONDS),
+                "max_duracion_ms", tiempoLote.max(TimeUnit.MILLISECONDS)
+        );
+    }
+}
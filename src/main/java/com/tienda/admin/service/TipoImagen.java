@@ -0,0 +1,51 @@
+package com.tienda.admin.service;
+
+/**
+ * Formatos de imagen aceptados, reconocidos por sus bytes iniciales ("magic numbers")
+ * en lugar del Content-Type o la extensión que declara el cliente.
+ */
+public enum TipoImagen {
+    JPEG("jpg", new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF}),
+    PNG("png", new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'}),
+    GIF("gif", new byte[]{'G', 'I', 'F', '8'}),
+    WEBP("webp", new byte[]{'R', 'I', 'F', 'F'}),
+    BMP("bmp", new byte[]{'B', 'M'});
+    
+    // Bytes necesarios para reconocer cualquiera de los formatos
+    public static final int BYTES_CABECERA = 12;
+    
+    private final String extension;
+    private final byte[] firma;
+    
+    TipoImagen(String extension, byte[] firma) {
+        this.extension = extension;
+        this.firma = firma;
+    }
+    
+    public String getExtension() {
+        return extension;
+    }
+    
+    /** Tipo reconocido en los primeros {@code longitud} bytes, o null si no es una imagen aceptada. */
+    public static TipoImagen detectar(byte[] cabecera, int longitud) {
+        for (TipoImagen tipo : values()) {
+            if (coincide(cabecera, longitud, tipo.firma)) {
+                // RIFF también lo usan WAV y AVI: WebP lleva "WEBP" en el byte 8
+                if (tipo == WEBP && !(longitud >= 12 && cabecera[8] == 'W' && cabecera[9] == 'E'
+                        && cabecera[10] == 'B' && cabecera[11] == 'P')) {
+                    continue;
+                }
+                return tipo;
+            }
+        }
+        return null;
+    }
+    
+    private static boolean coincide(byte[] cabecera, int longitud, byte[] firma) {
+        if (longitud < firma.length) return false;
+        for (int i = 0; i < firma.length; i++) {
+            if (cabecera[i] != firma[i]) return false;
+        }
+        return true;
+    }
+}
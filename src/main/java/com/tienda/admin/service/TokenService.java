@@ -0,0 +1,210 @@
+package com.tienda.admin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tienda.admin.model.Administrador;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Tokens compactos estilo JWT firmados con HMAC-SHA256.
+ * <p>
+ * Formato: {@code base64url(cabecera).base64url(payload).base64url(firma)}. La cabecera
+ * lleva el id de clave ({@code kid}), lo que permite rotar claves: se firma siempre con
+ * la clave activa y se aceptan todas las configuradas. La validación no consulta la base
+ * de datos: solo comprueba firma, expiración y la lista de revocados en memoria.
+ * <p>
+ * Un token con alcance ({@code scp}) solo sirve para ese uso: el de {@link #ALCANCE_EVENTOS}
+ * va en la cookie del stream SSE, que EventSource envía sin poder añadir cabeceras. Comparte
+ * jti y expiración con el token de la sesión, así que revocar la sesión lo revoca también.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TokenService {
+
+    public static final String ALCANCE_EVENTOS = "eventos";
+
+    private static final String ALGORITMO = "HmacSHA256";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder B64_DECODER = Base64.getUrlDecoder();
+
+    private final ObjectMapper objectMapper;
+
+    // Formato: "kid1:secretoBase64,kid2:secretoBase64"
+    @Value("${seguridad.token.claves:}")
+    private String clavesConfiguradas;
+
+    @Value("${seguridad.token.clave-activa:}")
+    private String kidActivo;
+
+    @Value("${seguridad.token.ttl:PT8H}")
+    private Duration ttl;
+
+    // Cabecera codificada → clave. Como la cabecera de cada kid es fija, basta una
+    // búsqueda por igualdad de cadena para resolver la clave sin parsear JSON.
+    private final Map<String, Clave> clavesPorCabecera = new HashMap<>();
+    private Clave claveActiva;
+
+    // jti → expiración (epoch s). Solo hace falta recordar un token hasta que expira.
+    private final Map<String, Long> revocados = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (clavesConfiguradas == null || clavesConfiguradas.isBlank()) {
+            byte[] secreto = new byte[32];
+            new SecureRandom().nextBytes(secreto);
+            registrarClave("local", secreto);
+            kidActivo = "local";
+            log.warn("⚠️ seguridad.token.claves no configurado: se usa una clave aleatoria; " +
+                    "los tokens dejarán de ser válidos al reiniciar");
+        } else {
+            for (String definicion : clavesConfiguradas.split(",")) {
+                String[] partes = definicion.trim().split(":", 2);
+                if (partes.length != 2) {
+                    throw new IllegalStateException("Clave de token mal definida: " + partes[0]);
+                }
+                registrarClave(partes[0], Base64.getDecoder().decode(partes[1]));
+            }
+            if (kidActivo == null || kidActivo.isBlank()) {
+                kidActivo = clavesConfiguradas.split(",")[0].trim().split(":", 2)[0];
+            }
+        }
+
+        claveActiva = clavesPorCabecera.values().stream()
+                .filter(c -> c.kid().equals(kidActivo))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Clave activa desconocida: " + kidActivo));
+        log.info("🔑 Tokens firmados con kid={} ({} claves aceptadas)", kidActivo, clavesPorCabecera.size());
+    }
+
+    public String emitir(Administrador admin) {
+        long ahora = System.currentTimeMillis() / 1000;
+        return firmarClaims(new Claims(String.valueOf(admin.getId()), admin.getUsername(), ahora,
+                ahora + ttl.toSeconds(), UUID.randomUUID().toString(), null));
+    }
+
+    /** Token para un solo uso ({@code alcance}) de una sesión ya verificada, con su jti y su expiración. */
+    public String emitirConAlcance(TokenAdmin sesion, String alcance) {
+        return firmarClaims(new Claims(String.valueOf(sesion.adminId()), sesion.username(),
+                System.currentTimeMillis() / 1000, sesion.expiracion(), sesion.jti(), alcance));
+    }
+
+    private String firmarClaims(Claims claims) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("sub", claims.sub());
+        payload.put("usr", claims.usr());
+        payload.put("iat", claims.iat());
+        payload.put("exp", claims.exp());
+        payload.put("jti", claims.jti());
+        if (claims.scp() != null) payload.put("scp", claims.scp());
+
+        try {
+            String cuerpo = claveActiva.cabecera() + "." + B64.encodeToString(objectMapper.writeValueAsBytes(payload));
+            return cuerpo + "." + B64.encodeToString(firmar(claveActiva, cuerpo));
+        } catch (Exception e) {
+            throw new IllegalStateException("No se pudo emitir el token", e);
+        }
+    }
+
+    /** Devuelve los datos del token de sesión si es válido, o null en cualquier otro caso. */
+    public TokenAdmin verificar(String token) {
+        return verificar(token, null);
+    }
+
+    /**
+     * Como {@link #verificar(String)}, para un token emitido con {@code alcance}. Un token
+     * con alcance no vale como token de sesión ni al revés.
+     */
+    public TokenAdmin verificar(String token, String alcance) {
+        if (token == null) return null;
+
+        int primerPunto = token.indexOf('.');
+        int segundoPunto = primerPunto < 0 ? -1 : token.indexOf('.', primerPunto + 1);
+        if (segundoPunto < 0 || token.indexOf('.', segundoPunto + 1) >= 0) return null;
+
+        Clave clave = clavesPorCabecera.get(token.substring(0, primerPunto));
+        if (clave == null) return null;
+
+        try {
+            byte[] esperada = firmar(clave, token.substring(0, segundoPunto));
+            byte[] recibida = B64_DECODER.decode(token.substring(segundoPunto + 1));
+            if (!MessageDigest.isEqual(esperada, recibida)) return null;
+
+            Claims claims = objectMapper.readValue(
+                    B64_DECODER.decode(token.substring(primerPunto + 1, segundoPunto)), Claims.class);
+
+            if (!Objects.equals(claims.scp(), alcance)) return null;
+            if (claims.exp() <= System.currentTimeMillis() / 1000) return null;
+            if (claims.jti() != null && revocados.containsKey(claims.jti())) return null;
+
+            return new TokenAdmin(Long.valueOf(claims.sub()), claims.usr(), claims.jti(), claims.exp());
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public boolean revocar(String token) {
+        TokenAdmin datos = verificar(token);
+        if (datos == null || datos.jti() == null) return false;
+        revocados.put(datos.jti(), datos.expiracion());
+        return true;
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgarRevocados() {
+        long ahora = System.currentTimeMillis() / 1000;
+        revocados.values().removeIf(expiracion -> expiracion <= ahora);
+    }
+
+    private void registrarClave(String kid, byte[] secreto) {
+        String cabecera = B64.encodeToString(
+                ("{\"alg\":\"HS256\",\"typ\":\"JWT\",\"kid\":\"" + kid + "\"}").getBytes(StandardCharsets.UTF_8));
+        SecretKeySpec spec = new SecretKeySpec(secreto, ALGORITMO);
+
+        clavesPorCabecera.put(cabecera, new Clave(kid, cabecera, spec, new ConcurrentLinkedQueue<>()));
+    }
+
+    // Inicializar un Mac en cada verificación sería lo más costoso: se reutilizan desde un
+    // pool compartido. Un ThreadLocal no sirve con hilos virtuales (uno nuevo por petición).
+    private static byte[] firmar(Clave clave, String contenido) {
+        Mac mac = clave.macs().poll();
+        if (mac == null) mac = nuevoMac(clave.spec());
+        try {
+            // Las partes firmadas son Base64 URL, por tanto ASCII
+            return mac.doFinal(contenido.getBytes(StandardCharsets.US_ASCII));
+        } finally {
+            clave.macs().offer(mac);
+        }
+    }
+
+    private static Mac nuevoMac(SecretKeySpec spec) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(spec);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Clave(String kid, String cabecera, SecretKeySpec spec, Queue<Mac> macs) {}
+
+    private record Claims(String sub, String usr, long iat, long exp, String jti, String scp) {}
+
+    public record TokenAdmin(Long adminId, String username, String jti, long expiracion) {}
+}
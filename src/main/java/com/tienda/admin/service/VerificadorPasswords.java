@@ -0,0 +1,112 @@
+package com.tienda.admin.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+
+/**
+ * Ejecuta las comprobaciones BCrypt en un pool dedicado de tamaño fijo con cola acotada.
+ * <p>
+ * Si la cola está llena la petición se rechaza de inmediato con {@link ServidorOcupadoException}
+ * en lugar de acumular hilos de Tomcat esperando CPU. Cuando la contraseña es correcta y el
+ * hash guardado usa un coste menor que el actual, en la misma tarea se calcula el hash nuevo.
+ */
+@Slf4j
+@Component
+public class VerificadorPasswords {
+    
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+    
+    private final Timer tiempoBcrypt;
+    private final Counter rechazos;
+    
+    public VerificadorPasswords(BCryptPasswordEncoder passwordEncoder,
+                                MeterRegistry meterRegistry,
+                                @Value("${seguridad.bcrypt.hilos:0}") int hilos,
+                                @Value("${seguridad.bcrypt.cola:64}") int cola,
+                                @Value("${seguridad.bcrypt.timeout-ms:5000}") long timeoutMs) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = timeoutMs;
+        
+        // BCrypt es CPU puro: más hilos que núcleos solo añade espera
+        int tamaño = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(tamaño, tamaño, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                new CustomizableThreadFactory("bcrypt-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("🔐 Pool BCrypt: {} hilos, cola de {}", tamaño, cola);
+        
+        this.tiempoBcrypt = Timer.builder("tienda.auth.bcrypt")
+                .description("Tiempo de CPU de cada verificación BCrypt (incluye el re-hash)")
+                .register(meterRegistry);
+        this.rechazos = Counter.builder("tienda.auth.bcrypt.rechazos")
+                .description("Verificaciones rechazadas por pool saturado o timeout")
+                .register(meterRegistry);
+        Gauge.builder("tienda.auth.bcrypt.cola", executor, e -> e.getQueue().size())
+                .description("Verificaciones esperando hilo")
+                .register(meterRegistry);
+    }
+    
+    /** Una única verificación BCrypt; bloquea hasta el resultado o lanza ServidorOcupadoException. */
+    public Verificacion verificar(String password, String hash) {
+        Future<Verificacion> tarea;
+        try {
+            tarea = executor.submit(() -> tiempoBcrypt.recordCallable(() -> {
+                boolean coincide = passwordEncoder.matches(password, hash);
+                String nuevoHash = coincide && passwordEncoder.upgradeEncoding(hash)
+                        ? passwordEncoder.encode(password)
+                        : null;
+                return new Verificacion(coincide, nuevoHash);
+            }));
+        } catch (RejectedExecutionException e) {
+            rechazos.increment();
+            throw new ServidorOcupadoException();
+        }
+        
+        try {
+            return tarea.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            tarea.cancel(true);
+            rechazos.increment();
+            throw new ServidorOcupadoException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServidorOcupadoException();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al verificar contraseña", e.getCause());
+        }
+    }
+    
+    public String codificar(String password) {
+        return passwordEncoder.encode(password);
+    }
+    
+    public int profundidadCola() {
+        return executor.getQueue().size();
+    }
+    
+    @PreDestroy
+    public void detener() {
+        executor.shutdown();
+    }
+    
+    /** nuevoHash no es null cuando hay que re-hashear la contraseña con el coste actual. */
+    public record Verificacion(boolean coincide, String nuevoHash) {}
+    
+    public static class ServidorOcupadoException extends RuntimeException {
+        public ServidorOcupadoException() {
+            super("Demasiados inicios de sesión simultáneos, reintente en unos segundos");
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.tienda.admin.service;
+
+import com.tienda.admin.repository.ProductoEliminadoRepository;
+import com.tienda.admin.repository.ProductoRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sello de versión del catálogo, para responder 304 a las peticiones condicionales sin
+ * consultar ni serializar la lista.
+ * <p>
+ * Sale de la base de datos: el contador de catalogo_version, que un trigger incrementa en
+ * la misma transacción que cada escritura sobre productos, y la última escritura (máximo
+ * de updated_at de productos y de eliminado_en de productos_eliminados) para Last-Modified.
+ * El contador cambia al confirmar aunque los sellos de tiempo de esa transacción sean
+ * anteriores al máximo, así que una importación que confirma tarde no pasa desapercibida.
+ * Todas las instancias dan el mismo ETag para el mismo catálogo y ven los cambios hechos
+ * por otras o por la importación. La lectura se reutiliza durante
+ * {@code catalogo.version.ttl}; las escrituras de esta instancia la renuevan en el acto.
+ * <p>
+ * Las cachés de lista y categorías usan la versión como clave: una entrada nunca es más
+ * antigua que la versión con la que se etiqueta.
+ */
+@Component
+@RequiredArgsConstructor
+public class VersionCatalogo {
+
+    private final ProductoRepository productoRepository;
+    private final ProductoEliminadoRepository productoEliminadoRepository;
+
+    @Value("${catalogo.version.ttl:PT2S}")
+    private Duration ttl;
+
+    // Con el catálogo vacío la última escritura es el arranque
+    private final long arranque = System.currentTimeMillis();
+    private final AtomicReference<Version> actual = new AtomicReference<>();
+    private final ReentrantLock lectura = new ReentrantLock();
+    private volatile long leidaEn;
+
+    @PostConstruct
+    public void init() {
+        refrescar();
+    }
+
+    /** Versión actual; si la lectura ha caducado la renueva un solo hilo, el resto usa la anterior. */
+    public Version actual() {
+        if (System.nanoTime() - leidaEn >= ttl.toNanos() && lectura.tryLock()) {
+            try {
+                if (System.nanoTime() - leidaEn >= ttl.toNanos()) {
+                    leer();
+                }
+            } finally {
+                lectura.unlock();
+            }
+        }
+        return actual.get();
+    }
+
+    /** Se llama tras confirmar un alta, una modificación, un borrado o una importación. */
+    public void refrescar() {
+        lectura.lock();
+        try {
+            leer();
+        } finally {
+            lectura.unlock();
+        }
+    }
+
+    private void leer() {
+        long escritura = Math.max(
+                microsegundos(productoRepository.findUltimaModificacion()),
+                microsegundos(productoEliminadoRepository.findUltimoBorrado()));
+        if (escritura == 0) {
+            escritura = arranque * 1000;
+        }
+        long contador = productoRepository.findVersionCatalogo();
+
+        long ultimaEscritura = escritura;
+        actual.updateAndGet(anterior -> siguiente(anterior, contador, ultimaEscritura));
+        leidaEn = System.nanoTime();
+    }
+
+    // Last-Modified va en segundos enteros: cada cambio lo adelanta al menos un segundo, o
+    // dos escrituras en el mismo segundo darían 304 a quien solo envía If-Modified-Since
+    private static Version siguiente(Version anterior, long contador, long escritura) {
+        if (anterior != null && anterior.contador() == contador && anterior.escritura() == escritura) {
+            return anterior;
+        }
+        long modificado = (escritura / 1_000_000 + 1) * 1000;
+        if (anterior != null) {
+            modificado = Math.max(modificado, anterior.modificado() + 1000);
+        }
+        return new Version(contador, escritura, modificado);
+    }
+
+    private static long microsegundos(LocalDateTime momento) {
+        if (momento == null) return 0;
+        Instant instante = momento.atZone(ZoneId.systemDefault()).toInstant();
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instante);
+    }
+
+    /** ETag débil para una representación concreta (JSON, NDJSON, categorías...). */
+    public String etag(Version version, String representacion) {
+        return "W/\"" + representacion + "-" + Long.toString(version.contador(), 36) + "\"";
+    }
+
+    /**
+     * @param contador   valor de catalogo_version: cambia con cada escritura confirmada
+     * @param escritura  última escritura en la base de datos (epoch en microsegundos)
+     * @param modificado valor de Last-Modified (epoch ms, segundos enteros)
+     */
+    public record Version(long contador, long escritura, long modificado) {
+
+        /** Última escritura en milisegundos, la base de la versión de sincronización. */
+        public long escrituraMs() {
+            return escritura / 1000;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+-- Esquema que hasta ahora creaba Hibernate con ddl-auto=update.
+-- Con IF NOT EXISTS se puede aplicar también sobre la base de datos ya existente
+-- (spring.flyway.baseline-version=0): solo crea lo que falte.
+
+CREATE TABLE IF NOT EXISTS administradores (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username      VARCHAR(50)  NOT NULL UNIQUE,
+    password_hash VARCHAR(255) NOT NULL,
+    email         VARCHAR(100),
+    nombre        VARCHAR(100),
+    activo        BOOLEAN,
+    created_at    TIMESTAMP(6),
+    last_login    TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS productos (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    nombre          VARCHAR(255)   NOT NULL,
+    descripcion     VARCHAR(1000),
+    precio          NUMERIC(10, 2) NOT NULL,
+    categoria       VARCHAR(255),
+    oferta_especial BOOLEAN,
+    imagen          VARCHAR(255),
+    img             VARCHAR(255),
+    created_at      TIMESTAMP(6),
+    updated_at      TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS imagenes (
+    digest      VARCHAR(64)  PRIMARY KEY,
+    ruta        VARCHAR(255) NOT NULL UNIQUE,
+    tamano      BIGINT,
+    referencias INTEGER,
+    created_at  TIMESTAMP(6)
+);
+
+-- Intentos de login fallidos (seguridad.login.backend=jdbc)
+CREATE TABLE IF NOT EXISTS login_intentos (
+    clave        VARCHAR(150) PRIMARY KEY,
+    fallos       INTEGER NOT NULL,
+    ultimo_fallo BIGINT  NOT NULL
+);
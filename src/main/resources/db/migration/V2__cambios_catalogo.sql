@@ -0,0 +1,12 @@
+-- Sincronización incremental del catálogo (GET /api/productos/cambios).
+-- Los borrados no dejan fila en productos: se anotan aquí para enviarlos como "tombstones".
+
+CREATE TABLE productos_eliminados (
+    producto_id  BIGINT       PRIMARY KEY,
+    eliminado_en TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_productos_eliminados_eliminado_en ON productos_eliminados (eliminado_en);
+
+-- Altas y modificaciones posteriores a una versión: recorrido por rango en vez de toda la tabla
+CREATE INDEX IF NOT EXISTS idx_productos_updated_at ON productos (updated_at);
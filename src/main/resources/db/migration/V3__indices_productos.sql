@@ -0,0 +1,23 @@
+-- Índices para las consultas de ProductoRepository. Hasta ahora solo existían las claves
+-- primarias, el UNIQUE de administradores.username y los de la V2.
+
+-- Lista completa, streaming NDJSON y paginación por cursor: ORDER BY nombre, id
+CREATE INDEX IF NOT EXISTS idx_productos_nombre_id ON productos (nombre, id);
+
+-- Filtro por categoría ordenado por nombre, y DISTINCT categoria (lista de categorías)
+CREATE INDEX IF NOT EXISTS idx_productos_categoria_nombre ON productos (categoria, nombre);
+
+-- Las ofertas son pocas: un índice parcial solo con ellas, ya ordenado por nombre
+CREATE INDEX IF NOT EXISTS idx_productos_ofertas_nombre ON productos (nombre) WHERE oferta_especial = true;
+
+-- Búsqueda por nombre (LOWER(nombre) LIKE '%texto%'): un btree no sirve con el comodín
+-- inicial, los trigramas sí. pg_trgm es una extensión "trusted" desde PostgreSQL 13:
+-- basta con ser propietario de la base de datos para crearla
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_productos_nombre_trgm ON productos USING gin (lower(nombre) gin_trgm_ops);
+
+-- Búsqueda de administradores por email
+CREATE INDEX IF NOT EXISTS idx_administradores_email ON administradores (email);
+
+-- Estadísticas de la expresión lower(nombre) para el planificador
+ANALYZE productos;
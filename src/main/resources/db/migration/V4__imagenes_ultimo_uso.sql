@@ -0,0 +1,7 @@
+-- Último uso de cada imagen: lo renuevan la subida y las subidas repetidas del mismo
+-- contenido. El recolector solo borra las que llevan más del periodo de gracia sin usarse,
+-- así que una imagen huérfana vuelta a subir no desaparece antes de guardar su producto.
+
+ALTER TABLE imagenes ADD COLUMN IF NOT EXISTS ultimo_uso TIMESTAMP(6);
+
+UPDATE imagenes SET ultimo_uso = COALESCE(created_at, NOW()) WHERE ultimo_uso IS NULL;
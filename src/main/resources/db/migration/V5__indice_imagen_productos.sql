@@ -0,0 +1,6 @@
+-- Usos de una imagen (ProductoRepository.countByImagenEndingWith): imagen LIKE '%/uploads/...'.
+-- Producto.imagen puede ser la ruta relativa o una URL absoluta que termina en ella, y el
+-- comodín inicial deja fuera al btree. El recolector y el borrado de imágenes la ejecutan
+-- por cada imagen candidata; con trigramas deja de recorrer la tabla entera. pg_trgm ya
+-- lo crea la V3
+CREATE INDEX IF NOT EXISTS idx_productos_imagen_trgm ON productos USING gin (imagen gin_trgm_ops);
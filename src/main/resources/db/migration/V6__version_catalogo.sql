@@ -0,0 +1,25 @@
+-- Versión del catálogo (ETag de /api/productos): un contador que cada sentencia de escritura
+-- sobre productos incrementa dentro de su propia transacción. El valor nuevo se hace
+-- visible justo al confirmar, así que una transacción que confirma tarde cambia la versión
+-- aunque sus updated_at sean anteriores al máximo (la importación los sella con el NOW()
+-- del inicio de la transacción). Una secuencia no sirve: nextval se ve antes del commit.
+-- Las escrituras concurrentes se serializan en esta fila hasta confirmar.
+
+CREATE TABLE IF NOT EXISTS catalogo_version (
+    id      SMALLINT PRIMARY KEY CHECK (id = 1),
+    version BIGINT   NOT NULL
+);
+
+INSERT INTO catalogo_version (id, version) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION incrementar_version_catalogo() RETURNS trigger AS $$
+BEGIN
+    UPDATE catalogo_version SET version = version + 1 WHERE id = 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_productos_version_catalogo ON productos;
+CREATE TRIGGER trg_productos_version_catalogo
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON productos
+    FOR EACH STATEMENT EXECUTE FUNCTION incrementar_version_catalogo();
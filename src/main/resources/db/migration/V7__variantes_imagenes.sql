@@ -0,0 +1,11 @@
+-- Variantes redimensionadas que existen de cada imagen (sufijos separados por comas, p. ej.
+-- "detail,card,thumb"). Las escribe el procesado al terminar; NULL mientras no hay ninguna:
+-- formatos que no se pueden decodificar, cola llena o error. Solo se anuncian estas.
+
+ALTER TABLE imagenes ADD COLUMN IF NOT EXISTS variantes VARCHAR(50);
+
+-- Las listas en caché van por la versión del catálogo: unas variantes nuevas la cambian
+DROP TRIGGER IF EXISTS trg_imagenes_version_catalogo ON imagenes;
+CREATE TRIGGER trg_imagenes_version_catalogo
+    AFTER UPDATE OF variantes ON imagenes
+    FOR EACH STATEMENT EXECUTE FUNCTION incrementar_version_catalogo();
@@ -0,0 +1,216 @@
+package com.tienda.admin.repository;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.DisabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Comprueba con EXPLAIN que las consultas de los repositorios usan los índices de las
+ * migraciones. Se aplican las migraciones de Flyway sobre un PostgreSQL embebido, se
+ * siembra un catálogo con estadísticas reales (ANALYZE) y se explica el SQL exacto que
+ * genera Hibernate para cada método, capturado con un StatementInspector.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(IndicesProductosTest.BaseDatosEmbebida.class)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.tienda.admin.repository.IndicesProductosTest$RegistroSql")
+// Sin transacción por test: la siembra se confirma una vez y ANALYZE la ve
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+// initdb no se deja ejecutar como root
+@DisabledIfSystemProperty(named = "user.name", matches = "root", disabledReason = "PostgreSQL embebido no arranca como root")
+class IndicesProductosTest {
+
+    private static final int PRODUCTOS = 50_000;
+    private static final int ADMINISTRADORES = 5_000;
+
+    @Autowired
+    private ProductoRepository productoRepository;
+
+    @Autowired
+    private AdministradorRepository administradorRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeAll
+    void sembrar() {
+        // 200 categorías, 1 de cada 50 en oferta, updated_at repartido en el último día y
+        // dos de cada tres con una imagen del almacén por contenido (URL absoluta)
+        jdbc.update("""
+                INSERT INTO productos (nombre, descripcion, precio, categoria, oferta_especial, imagen, created_at, updated_at)
+                SELECT 'Producto ' || lpad(i::text, 6, '0'), 'Descripción del producto ' || i, 10 + i % 90,
+                       'Categoria ' || (i % 200), i % 50 = 0,
+                       CASE WHEN i % 3 <> 0 THEN 'https://tienda.example/uploads/' || substr(md5(i::text), 1, 2)
+                            || '/' || substr(md5(i::text), 3, 2) || '/' || md5(i::text) || '.jpg' END,
+                       NOW() - interval '1 day', NOW() - (i || ' seconds')::interval
+                FROM generate_series(1, ?) AS i
+                """, PRODUCTOS);
+        jdbc.update("""
+                INSERT INTO administradores (username, password_hash, email, nombre, activo, created_at)
+                SELECT 'admin' || i, 'x', 'admin' || i || '@tienda.local', 'Admin ' || i, true, NOW()
+                FROM generate_series(1, ?) AS i
+                """, ADMINISTRADORES);
+        // VACUUM vuelca la lista pendiente del índice GIN, como haría autovacuum en producción
+        jdbc.execute("VACUUM ANALYZE productos");
+        jdbc.execute("VACUUM ANALYZE administradores");
+    }
+
+    @Test
+    void primeraPaginaRecorreElIndiceNombreId() {
+        String sql = sqlDe(() -> productoRepository.findAllByOrderByNombreAscIdAsc(Limit.of(51)));
+
+        assertThat(plan(sql, 51)).contains("Index Scan using idx_productos_nombre_id");
+    }
+
+    // El cursor tiene que ser un límite del índice (Index Cond), no un filtro sobre lo ya recorrido
+    @Test
+    void paginaPorCursorEmpiezaEnElCursor() {
+        String sql = sqlDe(() -> productoRepository.findPaginaDespuesDe("Producto 040000", 40_000L, Limit.of(51)));
+
+        String plan = plan(sql, "Producto 040000", 40_000L, 51);
+        assertThat(plan)
+                .contains("Index Scan using idx_productos_nombre_id")
+                .contains("Index Cond")
+                .doesNotContain("Filter");
+    }
+
+    @Test
+    void categoriaUsaIndiceCategoriaNombre() {
+        String sql = sqlDe(() -> productoRepository.findByCategoriaOrderByNombreAsc("Categoria 7"));
+
+        assertThat(plan(sql, "Categoria 7")).contains("idx_productos_categoria_nombre");
+    }
+
+    @Test
+    void ofertasUsanIndiceParcial() {
+        String sql = sqlDe(() -> productoRepository.findByOfertaEspecialOrderByNombreAsc(true));
+
+        assertThat(plan(sql, true)).contains("idx_productos_ofertas_nombre");
+    }
+
+    // Un término con trigramas poco frecuentes; "producto" está en todas las filas y ahí
+    // el recorrido secuencial es el plan correcto
+    @Test
+    void busquedaPorNombreUsaTrigramas() {
+        String sql = sqlDe(() -> productoRepository.buscarProductos("039999", null, null));
+
+        assertThat(plan(sql, parametrosBusqueda(sql, "039999"))).contains("idx_productos_nombre_trgm");
+    }
+
+    @Test
+    void busquedaPorNombreYCategoriaUsaAlgunIndice() {
+        String sql = sqlDe(() -> productoRepository.buscarProductos("039999", "Categoria 3", null));
+
+        assertThat(plan(sql, parametrosBusqueda(sql, "039999", "Categoria 3")))
+                .containsAnyOf("idx_productos_nombre_trgm", "idx_productos_categoria_nombre")
+                .doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void cambiosRecientesUsanIndiceUpdatedAt() {
+        LocalDateTime desde = LocalDateTime.now().minusMinutes(5);
+        String sql = sqlDe(() -> productoRepository.findByUpdatedAtAfterOrderByUpdatedAtAscIdAsc(desde));
+
+        assertThat(plan(sql, desde)).contains("idx_productos_updated_at");
+    }
+
+    // El recolector de imágenes lo ejecuta por cada candidata
+    @Test
+    void usosDeUnaImagenUsanTrigramas() {
+        String ruta = jdbc.queryForObject(
+                "SELECT substring(imagen from '/uploads/.*') FROM productos WHERE nombre = 'Producto 012345'", String.class);
+        String sql = sqlDe(() -> productoRepository.countByImagenEndingWith(ruta));
+
+        assertThat(plan(sql, "%" + ruta)).contains("idx_productos_imagen_trgm").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void administradorPorEmailUsaSuIndice() {
+        String sql = sqlDe(() -> administradorRepository.findByEmail("admin42@tienda.local"));
+
+        assertThat(plan(sql, "admin42@tienda.local")).contains("idx_administradores_email");
+    }
+
+    @Test
+    void administradorPorUsernameUsaLaRestriccionUnica() {
+        String sql = sqlDe(() -> administradorRepository.findByUsernameAndActivoTrue("admin42"));
+
+        assertThat(plan(sql, "admin42")).contains("Index Scan").doesNotContain("Seq Scan");
+    }
+
+    // Ejecuta la consulta del repositorio y devuelve el SQL que ha enviado Hibernate
+    private static String sqlDe(Runnable consulta) {
+        RegistroSql.SENTENCIAS.clear();
+        consulta.run();
+        assertThat(RegistroSql.SENTENCIAS).hasSize(1);
+        return RegistroSql.SENTENCIAS.get(0);
+    }
+
+    // Plan con los valores reales (plan personalizado, como las primeras ejecuciones de la aplicación)
+    private String plan(String sql, Object... parametros) {
+        return String.join("\n", jdbc.queryForList("EXPLAIN " + sql, String.class, parametros));
+    }
+
+    // buscarProductos usa cada parámetro opcional dos veces ("? IS NULL OR ..."): se asignan
+    // en el orden de aparición, con tipo para los nulos
+    private static Object[] parametrosBusqueda(String sql, String nombre, String... categoria) {
+        List<Object> parametros = new ArrayList<>();
+        int porParametro = (int) sql.chars().filter(c -> c == '?').count() / 3;
+        for (int i = 0; i < porParametro; i++) parametros.add(nombre);
+        for (int i = 0; i < porParametro; i++) {
+            parametros.add(categoria.length > 0 ? categoria[0] : new SqlParameterValue(Types.VARCHAR, null));
+        }
+        for (int i = 0; i < porParametro; i++) parametros.add(new SqlParameterValue(Types.BOOLEAN, null));
+        return parametros.toArray();
+    }
+
+    public static class RegistroSql implements StatementInspector {
+        static final List<String> SENTENCIAS = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SENTENCIAS.add(sql);
+            return sql;
+        }
+    }
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class BaseDatosEmbebida {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.builder().start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres postgres) {
+            return postgres.getPostgresDatabase();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.tienda.admin.service;
+
+import com.tienda.admin.dto.ProductoDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IndiceBusquedaProductosTest {
+
+    private IndiceBusquedaProductos indice;
+
+    @BeforeEach
+    void setUp() {
+        indice = new IndiceBusquedaProductos();
+        indice.reconstruir(indexar -> List.of(
+                producto(1L, "Postres caseros", "Postres", "Tarta de queso y flan"),
+                producto(2L, "Carnes a la brasa", "Carnes", "Chuletón de ternera"),
+                producto(3L, "Dulces típicos", "Dulces", "Turrón y polvorones"),
+                producto(4L, "Guirnalda de luces", "Decoración", "Luz cálida LED"),
+                producto(5L, "Flor de pascua", "Plantas", "Maceta con flores rojas"),
+                producto(6L, "Procesador de alimentos", "Cocina", "Pica y tritura"),
+                producto(7L, "Café en grano", "Bebidas", "Tueste natural"),
+                producto(8L, "Postre", "Postres", "Ración individual")
+        ).forEach(indexar));
+    }
+
+    @Test
+    void tokenizarQuitaAcentosMayusculasYPalabrasVacias() {
+        assertThat(IndiceBusquedaProductos.tokenizar("Café de CAÑA y Té con Limón"))
+                .containsExactly("cafe", "cana", "te", "limon");
+    }
+
+    @Test
+    void tokenizarNoRecortaPlurales() {
+        assertThat(IndiceBusquedaProductos.tokenizar("postres dulces carnes"))
+                .containsExactly("postres", "dulces", "carnes");
+    }
+
+    @Test
+    void tokenizarSoloPalabrasVaciasNoDevuelveTerminos() {
+        assertThat(IndiceBusquedaProductos.tokenizar("de la con")).isEmpty();
+        assertThat(IndiceBusquedaProductos.tokenizar("  ")).isEmpty();
+        assertThat(IndiceBusquedaProductos.tokenizar(null)).isEmpty();
+    }
+
+    @Test
+    void variantesIncluyenLaPalabraYSusPosiblesSingulares() {
+        assertThat(IndiceBusquedaProductos.variantes("luces")).containsExactlyInAnyOrder("luces", "luce", "luz");
+        assertThat(IndiceBusquedaProductos.variantes("flores")).containsExactlyInAnyOrder("flores", "flore", "flor");
+        assertThat(IndiceBusquedaProductos.variantes("postres")).contains("postres", "postre");
+        assertThat(IndiceBusquedaProductos.variantes("cafe")).containsExactly("cafe");
+        assertThat(IndiceBusquedaProductos.variantes("mes")).containsExactly("mes");
+    }
+
+    @Test
+    void singularEncuentraPlural() {
+        assertThat(ids("postre")).contains(1L, 8L);
+        assertThat(ids("carne")).containsExactly(2L);
+        assertThat(ids("dulce")).containsExactly(3L);
+        assertThat(ids("luz")).containsExactly(4L);
+    }
+
+    @Test
+    void pluralEncuentraSingular() {
+        assertThat(ids("postres")).contains(1L, 8L);
+        assertThat(ids("flores")).containsExactly(5L);
+        assertThat(ids("luces")).containsExactly(4L);
+    }
+
+    @Test
+    void acentosNoImportanEnLaConsulta() {
+        assertThat(ids("cafe")).containsExactly(7L);
+        assertThat(ids("CAFÉ")).containsExactly(7L);
+        assertThat(ids("decoracion")).containsExactly(4L);
+    }
+
+    @Test
+    void ultimoTerminoSeBuscaComoPrefijo() {
+        assertThat(ids("proces")).containsExactly(6L);
+        assertThat(ids("proce")).containsExactly(6L);
+        assertThat(ids("guirn")).containsExactly(4L);
+    }
+
+    @Test
+    void soloElUltimoTerminoEsPrefijo() {
+        assertThat(ids("proces alimentos")).isEmpty();
+        assertThat(ids("alimentos proces")).containsExactly(6L);
+    }
+
+    @Test
+    void todosLosTerminosDebenAparecer() {
+        assertThat(ids("tarta queso")).containsExactly(1L);
+        assertThat(ids("tarta ternera")).isEmpty();
+    }
+
+    @Test
+    void consultaDeSoloPalabrasVaciasDevuelveNull() {
+        assertThat(indice.buscar("de la", null, null)).isNull();
+    }
+
+    @Test
+    void coincidenciaEnNombrePuntuaMasQueEnDescripcion() {
+        indice.indexar(producto(10L, "Bandeja de madera", "Menaje", "Para servir dulces"));
+
+        assertThat(ids("dulce")).containsExactly(3L, 10L);
+    }
+
+    @Test
+    void filtraPorCategoriaYOferta() {
+        assertThat(indice.buscar("postre", "Postres", null)).extracting(ProductoDTO::getId).contains(1L, 8L);
+        assertThat(indice.buscar("postre", "Carnes", null)).isEmpty();
+        assertThat(indice.buscar("postre", null, true)).isEmpty();
+    }
+
+    @Test
+    void cambiosYBorradosSeReflejan() {
+        indice.indexar(producto(9L, "Mantecados", "Dulces", null));
+        indice.eliminar(3L);
+
+        assertThat(ids("mantecado")).containsExactly(9L);
+        assertThat(ids("dulce")).containsExactly(9L);
+    }
+
+    private List<Long> ids(String consulta) {
+        return indice.buscar(consulta, null, null).stream().map(ProductoDTO::getId).toList();
+    }
+
+    private static ProductoDTO producto(Long id, String nombre, String categoria, String descripcion) {
+        return new ProductoDTO(id, nombre, descripcion, BigDecimal.TEN, categoria, false, null);
+    }
+}
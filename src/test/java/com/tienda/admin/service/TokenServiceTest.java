@@ -0,0 +1,153 @@
+package com.tienda.admin.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tienda.admin.model.Administrador;
+import com.tienda.admin.service.TokenService.TokenAdmin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenServiceTest {
+
+    private static final String CLAVE_A = "a:" + secreto('a');
+    private static final String CLAVE_B = "b:" + secreto('b');
+
+    private TokenService servicio;
+    private Administrador admin;
+
+    @BeforeEach
+    void setUp() {
+        servicio = servicio(CLAVE_A, "a", Duration.ofHours(1));
+        admin = new Administrador();
+        admin.setId(42L);
+        admin.setUsername("ana");
+    }
+
+    @Test
+    void tokenEmitidoSeVerifica() {
+        TokenAdmin datos = servicio.verificar(servicio.emitir(admin));
+
+        assertThat(datos).isNotNull();
+        assertThat(datos.adminId()).isEqualTo(42L);
+        assertThat(datos.username()).isEqualTo("ana");
+        assertThat(datos.jti()).isNotBlank();
+    }
+
+    @Test
+    void payloadManipuladoSeRechaza() {
+        String[] partes = servicio.emitir(admin).split("\\.");
+        String payload = new String(Base64.getUrlDecoder().decode(partes[1]), StandardCharsets.UTF_8)
+                .replace("\"sub\":\"42\"", "\"sub\":\"1\"");
+        String manipulado = partes[0] + "." + b64(payload) + "." + partes[2];
+
+        assertThat(servicio.verificar(manipulado)).isNull();
+    }
+
+    @Test
+    void firmaManipuladaSeRechaza() {
+        String token = servicio.emitir(admin);
+        int firma = token.lastIndexOf('.') + 1;
+        String manipulado = token.substring(0, firma) + (token.charAt(firma) == 'A' ? 'B' : 'A') + token.substring(firma + 1);
+
+        assertThat(servicio.verificar(manipulado)).isNull();
+        assertThat(servicio.verificar(token.substring(0, firma))).isNull();
+    }
+
+    @Test
+    void tokenMalFormadoSeRechaza() {
+        assertThat(servicio.verificar(null)).isNull();
+        assertThat(servicio.verificar("")).isNull();
+        assertThat(servicio.verificar("a.b")).isNull();
+        assertThat(servicio.verificar("a.b.c.d")).isNull();
+    }
+
+    @Test
+    void tokenExpiradoSeRechaza() {
+        TokenService caducado = servicio(CLAVE_A, "a", Duration.ofSeconds(-1));
+
+        assertThat(caducado.verificar(caducado.emitir(admin))).isNull();
+    }
+
+    @Test
+    void kidDesconocidoSeRechaza() {
+        TokenService otro = servicio(CLAVE_B, "b", Duration.ofHours(1));
+
+        assertThat(servicio.verificar(otro.emitir(admin))).isNull();
+    }
+
+    @Test
+    void mismoKidConOtroSecretoSeRechaza() {
+        TokenService impostor = servicio("a:" + secreto('x'), "a", Duration.ofHours(1));
+
+        assertThat(servicio.verificar(impostor.emitir(admin))).isNull();
+    }
+
+    @Test
+    void trasRotarSeAceptanLosTokensDeLaClaveAnterior() {
+        String anterior = servicio.emitir(admin);
+        TokenService rotado = servicio(CLAVE_B + "," + CLAVE_A, "b", Duration.ofHours(1));
+        String nuevo = rotado.emitir(admin);
+
+        assertThat(rotado.verificar(anterior)).isNotNull();
+        assertThat(rotado.verificar(nuevo)).isNotNull();
+        // Un nodo que aún no conoce la clave nueva no acepta sus tokens
+        assertThat(servicio.verificar(nuevo)).isNull();
+    }
+
+    @Test
+    void tokenRevocadoSeRechaza() {
+        String token = servicio.emitir(admin);
+        String otro = servicio.emitir(admin);
+
+        assertThat(servicio.revocar(token)).isTrue();
+
+        assertThat(servicio.verificar(token)).isNull();
+        assertThat(servicio.verificar(otro)).isNotNull();
+        assertThat(servicio.revocar(token)).isFalse();
+    }
+
+    @Test
+    void tokenConAlcanceSoloSirveParaEseAlcance() {
+        TokenAdmin sesion = servicio.verificar(servicio.emitir(admin));
+        String eventos = servicio.emitirConAlcance(sesion, TokenService.ALCANCE_EVENTOS);
+
+        assertThat(servicio.verificar(eventos, TokenService.ALCANCE_EVENTOS))
+                .isEqualTo(new TokenAdmin(42L, "ana", sesion.jti(), sesion.expiracion()));
+        assertThat(servicio.verificar(eventos)).isNull();
+        assertThat(servicio.verificar(eventos, "otro")).isNull();
+        assertThat(servicio.verificar(servicio.emitir(admin), TokenService.ALCANCE_EVENTOS)).isNull();
+    }
+
+    @Test
+    void revocarLaSesionRevocaSusTokensConAlcance() {
+        String token = servicio.emitir(admin);
+        String eventos = servicio.emitirConAlcance(servicio.verificar(token), TokenService.ALCANCE_EVENTOS);
+
+        servicio.revocar(token);
+
+        assertThat(servicio.verificar(eventos, TokenService.ALCANCE_EVENTOS)).isNull();
+    }
+
+    private static TokenService servicio(String claves, String kidActivo, Duration ttl) {
+        TokenService servicio = new TokenService(new ObjectMapper());
+        ReflectionTestUtils.setField(servicio, "clavesConfiguradas", claves);
+        ReflectionTestUtils.setField(servicio, "kidActivo", kidActivo);
+        ReflectionTestUtils.setField(servicio, "ttl", ttl);
+        servicio.init();
+        return servicio;
+    }
+
+    private static String secreto(char relleno) {
+        return Base64.getEncoder().encodeToString(String.valueOf(relleno).repeat(32).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String b64(String texto) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+}